@@ -0,0 +1,23 @@
+package org.jparsec.java;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, so that allocation rates (bytes/op) are reported
+ * along with the throughput. Accepts the same command line options as JMH.
+ */
+public final class BenchmarkMain {
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder()
+            .parent(new CommandLineOptions(args))
+            .addProfiler(GCProfiler.class)
+            .build())
+        .run();
+  }
+
+  private BenchmarkMain() {}
+}
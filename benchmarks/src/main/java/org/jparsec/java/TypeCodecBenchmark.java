@@ -0,0 +1,72 @@
+package org.jparsec.java;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.reflect.TypeToken;
+
+/** Benchmarks {@link TypeCodec} against the round trip through strings and {@link TypeParser}. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TypeCodecBenchmark {
+
+  private static final ImmutableMap<String, String> INPUTS = ImmutableMap.<String, String>builder()
+      .put("simple", "String")
+      .put("nestedGenerics",
+          "java.util.Map<java.lang.String, java.util.List<java.util.Map<Integer, Long>>>")
+      .put("boundedWildcard",
+          "java.util.Map<? extends Number, ? super java.util.List<? extends CharSequence>>")
+      .put("genericArray", "java.util.List<java.lang.Iterable<int[][]>[][]>")
+      .build();
+
+  @Param({"simple", "nestedGenerics", "boundedWildcard", "genericArray"})
+  public String shape;
+
+  private final TypeParser parser = new TypeParser();
+  private final TypeCodec codec = new TypeCodec(parser);
+  private final ByteBuffer buffer = ByteBuffer.allocate(1024);
+  private TypeToken<?> type;
+  private String string;
+  private byte[] bytes;
+
+  @Setup public void setUp() {
+    type = parser.parse(INPUTS.get(shape));
+    string = type.toString();
+    bytes = codec.encode(type);
+  }
+
+  @Benchmark public String writeString() {
+    return type.toString();
+  }
+
+  @Benchmark public ByteBuffer encode() {
+    buffer.clear();
+    codec.encode(type, buffer);
+    return buffer;
+  }
+
+  @Benchmark public TypeToken<?> parseString() {
+    return parser.parse(string);
+  }
+
+  @Benchmark public TypeToken<?> decode() {
+    return codec.decode(ByteBuffer.wrap(bytes));
+  }
+}
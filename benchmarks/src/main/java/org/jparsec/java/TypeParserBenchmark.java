@@ -0,0 +1,76 @@
+package org.jparsec.java;
+
+import java.lang.reflect.Type;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.reflect.TypeToken;
+
+/** Benchmarks {@link TypeParser#parse} across input shapes. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TypeParserBenchmark {
+
+  private static final ImmutableMap<String, String> INPUTS = ImmutableMap.<String, String>builder()
+      .put("simple", "String")
+      .put("fqn", "java.util.concurrent.ConcurrentHashMap")
+      .put("nestedGenerics",
+          "java.util.Map<java.lang.String, java.util.List<java.util.Map<Integer, Long>>>")
+      .put("boundedWildcard",
+          "java.util.Map<? extends Number, ? super java.util.List<? extends CharSequence>>")
+      .put("genericArray", "java.util.List<java.lang.Iterable<int[][]>[][]>")
+      .put("internalArray", "[[Ljava.lang.String;")
+      .put("ownerType", "org.jparsec.java.TypeParserBenchmark$Outer<String>.Inner<Integer>")
+      .build();
+
+  @Param({
+      "simple", "fqn", "nestedGenerics", "boundedWildcard", "genericArray", "internalArray",
+      "ownerType"})
+  public String shape;
+
+  private String input;
+  private final TypeParser parser = new TypeParser();
+  private final TypeParser cachingParser = new TypeParser().withCache(1000);
+  private final TypeParser checkingParser = new TypeParser().withBoundsChecking();
+
+  @Setup public void setUp() {
+    input = INPUTS.get(shape);
+  }
+
+  @Benchmark public TypeToken<?> parse() {
+    return parser.parse(input);
+  }
+
+  /** Parses with the jparsec grammar only, bypassing the hand-written fast path. */
+  @Benchmark public Type parseWithGrammar() {
+    return parser.parseWithGrammar(input);
+  }
+
+  @Benchmark public TypeToken<?> parseCached() {
+    return cachingParser.parse(input);
+  }
+
+  @Benchmark public TypeToken<?> parseWithBoundsChecking() {
+    return checkingParser.parse(input);
+  }
+
+  static class Outer<T> {
+    class Inner<U> {}
+  }
+}
@@ -0,0 +1,84 @@
+package org.jparsec.java;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks warming up a parser with {@code count} distinct strings, by parsing them and by
+ * loading a {@link TypeSnapshot} of them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TypeSnapshotBenchmark {
+
+  private static final String[] CLASSES = {
+      "String", "Integer", "java.util.List<Long>", "java.util.Map<String, Object>",
+      "java.util.Set<? extends Number>", "java.lang.Iterable<int[]>", "Object[]",
+      "java.util.Optional<? super CharSequence>"};
+
+  @Param({"1000", "50000"})
+  public int count;
+
+  private final List<String> strings = new ArrayList<String>();
+  private Path snapshot;
+
+  @Setup public void setUp() throws IOException {
+    for (int i = 0; i < count; i++) {
+      // Each digit of i in base CLASSES.length picks a class, so that the strings are distinct.
+      String type = CLASSES[i % CLASSES.length];
+      for (int rest = i / CLASSES.length; rest > 0; rest /= CLASSES.length) {
+        type = "java.util.Map<" + CLASSES[rest % CLASSES.length] + ", " + type + ">";
+      }
+      strings.add(type);
+    }
+    TypeParser parser = newParser();
+    for (String string : strings) {
+      parser.parse(string);
+    }
+    snapshot = Files.createTempFile("snapshot", ".bin");
+    TypeSnapshot.save(parser, snapshot, 0);
+  }
+
+  @TearDown public void tearDown() throws IOException {
+    Files.delete(snapshot);
+  }
+
+  @Benchmark public TypeParser parse() {
+    TypeParser parser = newParser();
+    for (String string : strings) {
+      parser.parse(string);
+    }
+    return parser;
+  }
+
+  @Benchmark public TypeParser loadSnapshot() throws IOException {
+    TypeParser parser = newParser();
+    TypeSnapshot.load(parser, snapshot, 0);
+    return parser;
+  }
+
+  private TypeParser newParser() {
+    return new TypeParser().withCache(count);
+  }
+}
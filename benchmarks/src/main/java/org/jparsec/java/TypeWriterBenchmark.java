@@ -0,0 +1,64 @@
+package org.jparsec.java;
+
+import java.lang.reflect.Type;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.reflect.TypeToken;
+
+/** Benchmarks {@link TypeWriter} against {@link TypeToken#toString}. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TypeWriterBenchmark {
+
+  private static final ImmutableMap<String, String> INPUTS = ImmutableMap.<String, String>builder()
+      .put("simple", "String")
+      .put("nestedGenerics",
+          "java.util.Map<java.lang.String, java.util.List<java.util.Map<Integer, Long>>>")
+      .put("boundedWildcard",
+          "java.util.Map<? extends Number, ? super java.util.List<? extends CharSequence>>")
+      .put("genericArray", "java.util.List<java.lang.Iterable<int[][]>[][]>")
+      .build();
+
+  @Param({"simple", "nestedGenerics", "boundedWildcard", "genericArray"})
+  public String shape;
+
+  private final StringBuilder builder = new StringBuilder();
+  private TypeToken<?> typeToken;
+  private Type type;
+
+  @Setup public void setUp() {
+    typeToken = new TypeParser().parse(INPUTS.get(shape));
+    type = typeToken.getType();
+  }
+
+  @Benchmark public String typeTokenToString() {
+    return typeToken.toString();
+  }
+
+  @Benchmark public String writeToString() {
+    return TypeWriter.toString(type);
+  }
+
+  /** Appends to a reused builder, as when writing many types to the same output. */
+  @Benchmark public StringBuilder appendTo() {
+    builder.setLength(0);
+    return TypeWriter.appendTo(builder, type);
+  }
+}
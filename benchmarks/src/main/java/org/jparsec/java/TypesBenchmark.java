@@ -0,0 +1,55 @@
+package org.jparsec.java;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableList;
+
+/** Benchmarks the {@link Types} factories. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TypesBenchmark {
+
+  private final ImmutableList<Type> mapArgs =
+      ImmutableList.<Type>of(String.class, Types.subtypeOf(Number.class));
+  private final Type listOfString =
+      Types.newParameterizedType(List.class, ImmutableList.of(String.class));
+
+  @Benchmark public WildcardType subtypeOf() {
+    return Types.subtypeOf(Number.class);
+  }
+
+  @Benchmark public WildcardType supertypeOf() {
+    return Types.supertypeOf(Integer.class);
+  }
+
+  @Benchmark public ParameterizedType newParameterizedType() {
+    return Types.newParameterizedType(Map.class, mapArgs);
+  }
+
+  @Benchmark public Type newGenericArrayType() {
+    return Types.newArrayType(listOfString);
+  }
+
+  @Benchmark public Class<?> newArrayClass() {
+    return Types.newArrayType(String.class);
+  }
+}
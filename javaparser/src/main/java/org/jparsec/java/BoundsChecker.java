@@ -0,0 +1,173 @@
+package org.jparsec.java;
+
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.reflect.TypeResolver;
+import com.google.common.reflect.TypeToken;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Checks the type arguments of parameterized types against the bounds declared by the type
+ * parameters, including recursive bounds such as {@code E extends Enum<E>}.
+ *
+ * <p>The outcome is memoized per type argument, that is, per raw class, type parameter and type
+ * argument, so that {@code Map<String, A>} and {@code Map<String, B>} share the outcome for
+ * {@code String}, and checking an argument seen before only costs a cache lookup. Type parameters
+ * whose bounds refer to other type parameters, or to those of the owner type, are checked along
+ * with the whole type every time.
+ *
+ * <p>The outcomes are shared by all checkers for the same class loader, like the classes loaded
+ * by {@link ClassResolver}. They're keyed by type names, which the class loader resolves to one
+ * class each, so that they don't keep classes, or the class loader, from being garbage collected.
+ *
+ * <p>The check is lenient with wildcards: for a {@code ? extends} argument, only the raw classes
+ * of its bound and of the parameter's bounds are checked for a possible common subclass, and
+ * {@code ? super} arguments aren't checked. Bounds that only resolve to a wildcard or still refer
+ * to type variables (as for a member type of a raw owner type) aren't checked either.
+ */
+final class BoundsChecker {
+
+  /** Maximum number of type arguments whose outcome is remembered per class loader. */
+  private static final long MAXIMUM_CHECKED_ARGUMENTS = 10000;
+
+  /** Error messages by class loader and checked type argument. Empty if within bounds. */
+  private static final LoadingCache<ClassLoader, Cache<String, Optional<String>>> CHECKED =
+      CacheBuilder.newBuilder()
+          .weakKeys()
+          .build(CacheLoader.from(
+              loader -> CacheBuilder.newBuilder().maximumSize(MAXIMUM_CHECKED_ARGUMENTS).build()));
+
+  private final Cache<String, Optional<String>> errors;
+
+  /** Creates a checker sharing the outcomes for the classes loaded by {@code classes}. */
+  BoundsChecker(ClassResolver classes) {
+    this.errors = CHECKED.getUnchecked(classes.getClassLoader());
+  }
+
+  /** Throws {@link IllegalArgumentException} if any type argument of {@code type} is invalid. */
+  void check(ParameterizedType type) {
+    Class<?> raw = (Class<?>) type.getRawType();
+    TypeVariable<?>[] vars = raw.getTypeParameters();
+    Type[] args = type.getActualTypeArguments();
+    TypeResolver ownerResolver = null;
+    for (int i = 0; i < vars.length; i++) {
+      TypeVariable<?> var = vars[i];
+      Type arg = args[i];
+      Optional<String> error;
+      if (hasTypeVariable(var.getBounds(), var)) {
+        if (ownerResolver == null) ownerResolver = resolverOf(type);
+        error = findUnsatisfiedBound(raw, var, arg, ownerResolver);
+      } else {
+        // The bounds only refer to the parameter itself, so the outcome depends on arg alone.
+        String key = raw.getName() + '<' + i + '>' + arg.getTypeName();
+        try {
+          error = errors.get(key, () ->
+              findUnsatisfiedBound(raw, var, arg, new TypeResolver().where(var, arg)));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+          throw Throwables.propagate(e.getCause());
+        }
+      }
+      if (error.isPresent()) {
+        throw new IllegalArgumentException(error.get());
+      }
+    }
+  }
+
+  /** Returns a resolver of the type variables of {@code type} and of its owner types. */
+  private static TypeResolver resolverOf(ParameterizedType type) {
+    TypeResolver resolver = new TypeResolver();
+    for (Type t = type; t instanceof ParameterizedType; ) {
+      ParameterizedType parameterizedType = (ParameterizedType) t;
+      t = parameterizedType.getOwnerType();
+      TypeVariable<?>[] vars = ((Class<?>) parameterizedType.getRawType()).getTypeParameters();
+      Type[] args = parameterizedType.getActualTypeArguments();
+      for (int i = 0; i < vars.length; i++) {
+        resolver = resolver.where(vars[i], args[i]);
+      }
+    }
+    return resolver;
+  }
+
+  private static Optional<String> findUnsatisfiedBound(
+      Class<?> raw, TypeVariable<?> var, Type arg, TypeResolver resolver) {
+    if (arg instanceof WildcardType) {
+      WildcardType wildcard = (WildcardType) arg;
+      if (wildcard.getLowerBounds().length > 0) return Optional.empty();
+      for (Type upperBound : wildcard.getUpperBounds()) {
+        Class<?> upperRaw = TypeToken.of(upperBound).getRawType();
+        for (Type bound : var.getBounds()) {
+          Class<?> boundRaw = TypeToken.of(bound).getRawType();
+          if (!mayHaveCommonSubclass(upperRaw, boundRaw)) {
+            return unsatisfied(raw, var, arg, boundRaw);
+          }
+        }
+      }
+      return Optional.empty();
+    }
+    for (Type bound : var.getBounds()) {
+      Type resolvedBound = resolver.resolveType(bound);
+      if (resolvedBound instanceof WildcardType || hasTypeVariable(resolvedBound, null)) continue;
+      if (!TypeToken.of(resolvedBound).isAssignableFrom(arg)) {
+        return unsatisfied(raw, var, arg, resolvedBound);
+      }
+    }
+    return Optional.empty();
+  }
+
+  private static Optional<String> unsatisfied(
+      Class<?> raw, TypeVariable<?> var, Type arg, Type bound) {
+    return Optional.of(String.format("%s isn't within bound %s of type parameter %s of %s",
+        arg.getTypeName(), bound.getTypeName(), var, raw.getName()));
+  }
+
+  /**
+   * Returns true unless no class can be a subclass of both {@code a} and {@code b}: they're
+   * unrelated, and either both are classes, or one is final.
+   */
+  private static boolean mayHaveCommonSubclass(Class<?> a, Class<?> b) {
+    if (a.isAssignableFrom(b) || b.isAssignableFrom(a)) return true;
+    if (Modifier.isFinal(a.getModifiers()) || Modifier.isFinal(b.getModifiers())) return false;
+    return a.isInterface() || b.isInterface();
+  }
+
+  /** Returns true if {@code type} refers to a type variable other than {@code except}. */
+  private static boolean hasTypeVariable(Type type, TypeVariable<?> except) {
+    if (type instanceof TypeVariable<?>) return !type.equals(except);
+    if (type instanceof ParameterizedType) {
+      ParameterizedType parameterizedType = (ParameterizedType) type;
+      if (parameterizedType.getOwnerType() != null
+          && hasTypeVariable(parameterizedType.getOwnerType(), except)) {
+        return true;
+      }
+      return hasTypeVariable(parameterizedType.getActualTypeArguments(), except);
+    }
+    if (type instanceof WildcardType) {
+      WildcardType wildcardType = (WildcardType) type;
+      return hasTypeVariable(wildcardType.getLowerBounds(), except)
+          || hasTypeVariable(wildcardType.getUpperBounds(), except);
+    }
+    if (type instanceof GenericArrayType) {
+      return hasTypeVariable(((GenericArrayType) type).getGenericComponentType(), except);
+    }
+    return false;
+  }
+
+  private static boolean hasTypeVariable(Type[] types, TypeVariable<?> except) {
+    for (Type type : types) {
+      if (hasTypeVariable(type, except)) return true;
+    }
+    return false;
+  }
+}
@@ -0,0 +1,74 @@
+package org.jparsec.java;
+
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A read-only view of single-byte characters (ASCII or Latin-1) in a {@link ByteBuffer},
+ * so that they can be parsed without being decoded first.
+ *
+ * <p>A view can be {@linkplain #reset pointed} at another region, so that one instance serves
+ * all the lines of a manifest. It's then only valid until it's reset, so anything kept has to be
+ * copied out with {@link #toString}, which copies the bytes in bulk. Not thread-safe.
+ */
+final class ByteCharSequence implements CharSequence {
+
+  private ByteBuffer source;
+
+  /** Duplicate of {@link #source}, so that bulk reads can move its position. */
+  private ByteBuffer buffer;
+  private int offset;
+  private int length;
+
+  /** Bytes copied out by {@link #toString}, reused across calls. */
+  private byte[] scratch = new byte[0];
+
+  /** Creates a view of nothing, to be {@linkplain #reset reset} before use. */
+  ByteCharSequence() {
+    reset(ByteBuffer.allocate(0), 0, 0);
+  }
+
+  ByteCharSequence(ByteBuffer buffer, int offset, int length) {
+    reset(buffer, offset, length);
+  }
+
+  /** Points this view at {@code length} bytes of {@code buffer} from {@code offset}. */
+  ByteCharSequence reset(ByteBuffer buffer, int offset, int length) {
+    checkPositionIndexes(offset, offset + length, buffer.limit());
+    if (buffer != source) {
+      this.source = buffer;
+      this.buffer = buffer.duplicate();
+    }
+    this.offset = offset;
+    this.length = length;
+    return this;
+  }
+
+  @Override public int length() {
+    return length;
+  }
+
+  @Override public char charAt(int index) {
+    if (index < 0 || index >= length) throw new IndexOutOfBoundsException(Integer.toString(index));
+    return (char) (buffer.get(offset + index) & 0xFF);
+  }
+
+  /** Returns the characters from {@code begin} to {@code end} copied to a string. */
+  @Override public CharSequence subSequence(int begin, int end) {
+    checkPositionIndexes(begin, end, length);
+    return copy(offset + begin, end - begin);
+  }
+
+  @Override public String toString() {
+    return copy(offset, length);
+  }
+
+  private String copy(int from, int count) {
+    if (scratch.length < count) scratch = new byte[Math.max(count, scratch.length * 2)];
+    buffer.position(from);
+    buffer.get(scratch, 0, count);
+    return new String(scratch, 0, count, ISO_8859_1);
+  }
+}
@@ -0,0 +1,410 @@
+package org.jparsec.java;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * An index of the top-level classes on a classpath by simple name, kept in a file and mapped in
+ * memory, so that the packages declaring a simple name are found without searching the class
+ * loader.
+ *
+ * <p>The index is built by scanning the jars and directories of the classpath once. It's stored
+ * along with a fingerprint of the classpath, made of the paths, sizes and modification times of
+ * its jars and class files, and rebuilt by {@link #open} when the fingerprint changes. Run
+ * {@link #main} to build it ahead of time. An index file that can't be read, such as one of
+ * another version or one left truncated, is rebuilt the same way.
+ *
+ * <p>The file has a hash table of the simple names, pointing to entries sorted by simple name,
+ * each with the binary names of the classes. Looking up a name is a hash probe into the mapped
+ * file.
+ *
+ * <p>Use {@link TypeParser#withClassIndex} to resolve names imported on demand through an index.
+ * Packages that aren't on the indexed classpath, such as those of the JDK, are still searched in
+ * the class loader.
+ */
+public final class ClassIndex {
+
+  private static final int MAGIC = 0x4a504349;  // "JPCI"
+  private static final int VERSION = 1;
+
+  /** Size of the header: magic, version, fingerprint, table size and packages offset. */
+  private static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 4;
+
+  private static final int FINGERPRINT_OFFSET = 8;
+
+  private final MappedByteBuffer buffer;
+  private final long fingerprint;
+  private final int tableSize;
+
+  /** Offset of the package list, which is also the end of the entries. */
+  private final int packagesOffset;
+
+  private final ImmutableList<String> packages;
+
+  /**
+   * Checks the header, the table and the package list of {@code buffer}. Entries are checked as
+   * they're read.
+   *
+   * @throws IllegalArgumentException if {@code buffer} isn't a valid class index
+   */
+  private ClassIndex(MappedByteBuffer buffer) {
+    int limit = buffer.limit();
+    checkArgument(limit >= HEADER_SIZE && buffer.getInt(0) == MAGIC, "Not a class index");
+    checkArgument(buffer.getInt(4) == VERSION,
+        "Unsupported class index version: %s", buffer.getInt(4));
+    this.buffer = buffer;
+    this.fingerprint = buffer.getLong(FINGERPRINT_OFFSET);
+    this.tableSize = buffer.getInt(16);
+    checkArgument(tableSize > 0 && Integer.bitCount(tableSize) == 1
+        && tableSize <= (limit - HEADER_SIZE) / 4, "Invalid table size: %s", tableSize);
+    int entriesOffset = HEADER_SIZE + 4 * tableSize;
+    this.packagesOffset = buffer.getInt(20);
+    checkArgument(packagesOffset >= entriesOffset && packagesOffset <= limit,
+        "Invalid packages offset: %s", packagesOffset);
+    for (int slot = 0; slot < tableSize; slot++) {
+      int offset = buffer.getInt(HEADER_SIZE + 4 * slot);
+      checkArgument(offset == 0 || (offset >= entriesOffset && offset < packagesOffset),
+          "Invalid entry offset: %s", offset);
+    }
+    ImmutableList.Builder<String> packages = ImmutableList.builder();
+    for (int offset = packagesOffset; offset < limit; ) {
+      checkArgument(offset + 2 <= limit, "Truncated class index");
+      int length = buffer.getShort(offset) & 0xffff;
+      checkArgument(offset + 2 + length <= limit, "Truncated class index");
+      packages.add(readString(offset + 2, length));
+      offset += 2 + length;
+    }
+    this.packages = packages.build();
+  }
+
+  /**
+   * Maps the index at {@code indexFile} if it was built for {@code classpath} as it is now.
+   * Otherwise, builds the index of {@code classpath} to {@code indexFile} first.
+   *
+   * <p>The file is replaced atomically, so that concurrent processes see either index in full.
+   * An existing file that isn't a valid index, such as one of another version, is replaced the
+   * same way.
+   */
+  public static ClassIndex open(Path indexFile, List<Path> classpath) throws IOException {
+    checkNotNull(indexFile);
+    long fingerprint = fingerprint(classpath);
+    if (Files.isRegularFile(indexFile)) {
+      try {
+        ClassIndex index = map(indexFile);
+        if (index.fingerprint == fingerprint) return index;
+      } catch (IllegalArgumentException e) {
+        // Unreadable, so rebuilt like a stale index.
+      }
+    }
+    write(indexFile, classpath, fingerprint);
+    return map(indexFile);
+  }
+
+  /** Builds the index of {@code classpath} to {@code indexFile}, replacing any existing file. */
+  public static void build(Path indexFile, List<Path> classpath) throws IOException {
+    write(indexFile, classpath, fingerprint(classpath));
+  }
+
+  /** Returns the entries of the {@code java.class.path} system property. */
+  public static List<Path> systemClasspath() {
+    return parseClasspath(System.getProperty("java.class.path", ""));
+  }
+
+  /**
+   * Returns the fingerprint of {@code classpath}, from the paths, sizes and modification times of
+   * its jars, and of the class files in its directories. The fingerprint changes when classes are
+   * added, removed or recompiled, so it can tell whether data derived from the classpath, such as
+   * a {@link TypeSnapshot}, is still valid.
+   */
+  public static long fingerprint(List<Path> classpath) throws IOException {
+    Hasher hasher = Hashing.murmur3_128().newHasher();
+    for (Path entry : classpath) {
+      hasher.putString(entry.toAbsolutePath().toString(), UTF_8).putByte((byte) 0);
+      if (Files.isDirectory(entry)) {
+        for (Path file : classFiles(entry)) {
+          putFile(hasher, entry.relativize(file).toString(), file);
+        }
+      } else if (Files.isRegularFile(entry)) {
+        putFile(hasher, "", entry);
+      }
+    }
+    return hasher.hash().asLong();
+  }
+
+  /**
+   * Builds the index of a classpath ahead of time.
+   * Usage: {@code ClassIndex <index file> [<classpath>]}, where the classpath defaults to the
+   * classpath of the tool itself.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1 || args.length > 2) {
+      System.err.println("Usage: ClassIndex <index file> [<classpath>]");
+      System.exit(2);
+    }
+    List<Path> classpath = args.length == 2 ? parseClasspath(args[1]) : systemClasspath();
+    Path indexFile = Paths.get(args[0]);
+    build(indexFile, classpath);
+    System.out.println("Indexed " + classpath.size() + " classpath entries to " + indexFile);
+  }
+
+  /**
+   * Returns the binary names of the top-level classes named {@code simpleName}, in alphabetical
+   * order, or an empty list if there are none.
+   */
+  public List<String> classNames(String simpleName) {
+    int offset = find(simpleName);
+    if (offset < 0) return ImmutableList.of();
+    offset += 2 + entryShort(offset);
+    int count = entryShort(offset);
+    offset += 2;
+    ImmutableList.Builder<String> names = ImmutableList.builder();
+    for (int i = 0; i < count; i++) {
+      int length = entryShort(offset);
+      checkEntry(offset + 2 + length);
+      names.add(readString(offset + 2, length));
+      offset += 2 + length;
+    }
+    return names.build();
+  }
+
+  /** Returns true if the class with binary name {@code className} is indexed. */
+  public boolean contains(String className) {
+    int dot = className.lastIndexOf('.');
+    return classNames(className.substring(dot + 1)).contains(className);
+  }
+
+  /**
+   * Returns true if the package {@code packageName} has classes on the indexed classpath.
+   * Classes are only known to be missing from the packages that are indexed.
+   */
+  public boolean hasPackage(String packageName) {
+    return Collections.binarySearch(packages, packageName) >= 0;
+  }
+
+  private static List<Path> parseClasspath(String classpath) {
+    List<Path> entries = new ArrayList<Path>();
+    for (String entry : Splitter.on(File.pathSeparatorChar).omitEmptyStrings().split(classpath)) {
+      entries.add(Paths.get(entry));
+    }
+    return entries;
+  }
+
+  /** Returns the fingerprint of the classpath the index was built from. */
+  long fingerprint() {
+    return fingerprint;
+  }
+
+  /** Returns the offset of the entry for {@code simpleName}, or -1 if there's none. */
+  private int find(String simpleName) {
+    byte[] name = simpleName.getBytes(UTF_8);
+    int mask = tableSize - 1;
+    int slot = hash(simpleName) & mask;
+    // The table is never full, but a corrupt one could be.
+    for (int probes = 0; probes < tableSize; probes++, slot = (slot + 1) & mask) {
+      int offset = buffer.getInt(HEADER_SIZE + 4 * slot);
+      if (offset == 0) return -1;
+      if (nameEquals(offset, name)) return offset;
+    }
+    return -1;
+  }
+
+  private boolean nameEquals(int offset, byte[] name) {
+    if (entryShort(offset) != name.length) return false;
+    checkEntry(offset + 2 + name.length);
+    for (int i = 0; i < name.length; i++) {
+      if (buffer.get(offset + 2 + i) != name[i]) return false;
+    }
+    return true;
+  }
+
+  /** Reads the unsigned short at {@code offset} of an entry. */
+  private int entryShort(int offset) {
+    checkEntry(offset + 2);
+    return buffer.getShort(offset) & 0xffff;
+  }
+
+  /** Checks that an entry doesn't extend to {@code end} beyond the entries. */
+  private void checkEntry(int end) {
+    checkArgument(end <= packagesOffset, "Corrupt class index entry ending at %s", end);
+  }
+
+  private String readString(int offset, int length) {
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = buffer.get(offset + i);
+    }
+    return new String(bytes, UTF_8);
+  }
+
+  private static ClassIndex map(Path indexFile) throws IOException {
+    try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+      // The mapping stays valid after the channel is closed.
+      return new ClassIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  /** Spreads the bits of {@link String#hashCode}, which is the same on every JVM. */
+  private static int hash(String simpleName) {
+    int h = simpleName.hashCode() * 0x9e3779b9;
+    return h ^ (h >>> 16);
+  }
+
+  private static void putFile(Hasher hasher, String name, Path file) throws IOException {
+    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+    hasher.putString(name, UTF_8).putByte((byte) 0)
+        .putLong(attributes.size())
+        .putLong(attributes.lastModifiedTime().toMillis());
+  }
+
+  private static void write(Path indexFile, List<Path> classpath, long fingerprint)
+      throws IOException {
+    // Simple name -> binary names, both sorted.
+    TreeMap<String, SortedSet<String>> classes = new TreeMap<String, SortedSet<String>>();
+    SortedSet<String> packages = new TreeSet<String>();
+    for (Path entry : classpath) {
+      if (Files.isDirectory(entry)) {
+        for (Path file : classFiles(entry)) {
+          String path = entry.relativize(file).toString();
+          add(classes, packages, path.replace(File.separatorChar, '/'));
+        }
+      } else if (Files.isRegularFile(entry)) {
+        try (ZipFile jar = new ZipFile(entry.toFile())) {
+          for (Enumeration<? extends ZipEntry> e = jar.entries(); e.hasMoreElements(); ) {
+            ZipEntry zipEntry = e.nextElement();
+            if (!zipEntry.isDirectory()) add(classes, packages, zipEntry.getName());
+          }
+        }
+      }
+    }
+    Path tmp = Files.createTempFile(
+        indexFile.toAbsolutePath().getParent(), indexFile.getFileName().toString(), ".tmp");
+    try {
+      try (OutputStream out = Files.newOutputStream(tmp)) {
+        writeTo(new DataOutputStream(out), classes, packages, fingerprint);
+      }
+      Files.move(tmp, indexFile,
+          StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  /** Adds the top-level class at {@code path} in a jar or directory, if it's one. */
+  private static void add(
+      Map<String, SortedSet<String>> classes, SortedSet<String> packages, String path) {
+    if (!path.endsWith(".class") || path.startsWith("META-INF/")) return;
+    String className = path.substring(0, path.length() - ".class".length()).replace('/', '.');
+    int dot = className.lastIndexOf('.');
+    String simpleName = className.substring(dot + 1);
+    // Member classes are reached through their top-level classes.
+    if (simpleName.indexOf('$') >= 0 || simpleName.indexOf('-') >= 0) return;
+    SortedSet<String> names = classes.get(simpleName);
+    if (names == null) {
+      names = new TreeSet<String>();
+      classes.put(simpleName, names);
+    }
+    names.add(className);
+    packages.add(dot < 0 ? "" : className.substring(0, dot));
+  }
+
+  private static void writeTo(
+      DataOutputStream out, TreeMap<String, SortedSet<String>> classes,
+      SortedSet<String> packages, long fingerprint) throws IOException {
+    // At most half full, so that probes stay short.
+    int tableSize = Integer.highestOneBit(Math.max(classes.size(), 1) * 2) * 2;
+    int[] table = new int[tableSize];
+    ByteBuffer entries = ByteBuffer.allocate(1024);
+    int entriesOffset = HEADER_SIZE + 4 * tableSize;
+    for (Map.Entry<String, SortedSet<String>> entry : classes.entrySet()) {
+      int slot = hash(entry.getKey()) & (tableSize - 1);
+      while (table[slot] != 0) {
+        slot = (slot + 1) & (tableSize - 1);
+      }
+      table[slot] = entriesOffset + entries.position();
+      entries = putString(entries, entry.getKey());
+      entries = ensureRemaining(entries, 2);
+      checkArgument(entry.getValue().size() <= 0xffff,
+          "Too many classes named %s", entry.getKey());
+      entries.putShort((short) entry.getValue().size());
+      for (String className : entry.getValue()) {
+        entries = putString(entries, className);
+      }
+    }
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    out.writeLong(fingerprint);
+    out.writeInt(tableSize);
+    out.writeInt(entriesOffset + entries.position());
+    for (int offset : table) {
+      out.writeInt(offset);
+    }
+    out.write(entries.array(), 0, entries.position());
+    for (String packageName : packages) {
+      byte[] bytes = packageName.getBytes(UTF_8);
+      out.writeShort(bytes.length);
+      out.write(bytes);
+    }
+    out.flush();
+  }
+
+  private static ByteBuffer putString(ByteBuffer buffer, String string) {
+    byte[] bytes = string.getBytes(UTF_8);
+    buffer = ensureRemaining(buffer, 2 + bytes.length);
+    buffer.putShort((short) bytes.length);
+    buffer.put(bytes);
+    return buffer;
+  }
+
+  private static ByteBuffer ensureRemaining(ByteBuffer buffer, int size) {
+    if (buffer.remaining() >= size) return buffer;
+    ByteBuffer grown =
+        ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + size));
+    buffer.flip();
+    return grown.put(buffer);
+  }
+
+  private static List<Path> classFiles(Path directory) throws IOException {
+    try (Stream<Path> files = Files.walk(directory)) {
+      List<Path> classFiles = new ArrayList<Path>();
+      files.filter(file -> file.toString().endsWith(".class") && Files.isRegularFile(file))
+          .sorted()
+          .forEach(classFiles::add);
+      return classFiles;
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+}
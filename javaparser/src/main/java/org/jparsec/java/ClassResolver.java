@@ -0,0 +1,71 @@
+package org.jparsec.java;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+/**
+ * Loads classes by name from a class loader.
+ *
+ * <p>Loaded classes are cached per class loader and shared by all resolvers using that loader, so
+ * that a name is only looked up through {@link Class#forName} once. The loaders are weakly
+ * referenced, and so are the cached classes (which are kept alive by their loaders anyway), so
+ * the cache doesn't prevent discarded class loaders from being garbage collected.
+ */
+final class ClassResolver {
+
+  private static final LoadingCache<ClassLoader, Cache<String, Class<?>>> LOADED =
+      CacheBuilder.newBuilder()
+          .weakKeys()
+          .build(CacheLoader.from(loader -> CacheBuilder.newBuilder().weakValues().build()));
+
+  private final ClassLoader classloader;
+
+  /** Class names known not to resolve, or null if negative caching isn't enabled. */
+  private final Cache<String, UnresolvedClassException> misses;
+
+  ClassResolver(ClassLoader classloader, Cache<String, UnresolvedClassException> misses) {
+    this.classloader = checkNotNull(classloader);
+    this.misses = misses;
+  }
+
+  ClassLoader getClassLoader() {
+    return classloader;
+  }
+
+  /** Returns a resolver using the same class loader with {@code misses} as the negative cache. */
+  ClassResolver withMisses(Cache<String, UnresolvedClassException> misses) {
+    return new ClassResolver(classloader, misses);
+  }
+
+  /** Loads the class named {@code name}. */
+  Class<?> load(String name) throws UnresolvedClassException {
+    Cache<String, Class<?>> loaded = LOADED.getUnchecked(classloader);
+    Class<?> cls = loaded.getIfPresent(name);
+    if (cls != null) return cls;
+    if (misses != null) {
+      UnresolvedClassException miss = misses.getIfPresent(name);
+      if (miss != null) throw miss;
+    }
+    try {
+      cls = Class.forName(name, false, classloader);
+    } catch (ClassNotFoundException e) {
+      // Stack-less and immutable, so the same instance is safe to rethrow for later misses.
+      UnresolvedClassException miss = new UnresolvedClassException(name);
+      if (misses != null) misses.put(name, miss);
+      throw miss;
+    }
+    loaded.put(name, cls);
+    return cls;
+  }
+
+  /** Returns the class named {@code name} if it's cached for {@code classloader}, or null. */
+  @VisibleForTesting static Class<?> cached(ClassLoader classloader, String name) {
+    Cache<String, Class<?>> loaded = LOADED.getIfPresent(classloader);
+    return loaded == null ? null : loaded.getIfPresent(name);
+  }
+}
@@ -0,0 +1,267 @@
+package org.jparsec.java;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A hand-written, single-pass recursive descent parser accepting the same type expressions as the
+ * {@link TypeParser} grammar, without creating token objects along the way. The types are built
+ * through a {@link TypeFactory}, either resolved or symbolic.
+ *
+ * <p>It gives up by returning null as soon as the input doesn't look right, in which case the
+ * grammar is expected to reparse the input and report the error. Well-formed input naming a class
+ * that can't be resolved, or a type that can't be built, fails with a {@link TypeException}
+ * instead, since the grammar would only search the class loader again to fail the same way.
+ */
+final class FastTypeParser<T> {
+
+  /**
+   * Thrown when a class can't be resolved or a type can't be built, with the failure as the cause.
+   */
+  static final class TypeException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /** Index in the source where the type that failed begins. */
+    final int index;
+
+    TypeException(RuntimeException cause, int index) {
+      super(cause.getMessage(), cause, false, false);
+      this.index = index;
+    }
+  }
+
+  private final TypeFactory<T> types;
+  private final CharSequence source;
+  private final int end;
+  private int index;
+
+  private FastTypeParser(TypeFactory<T> types, CharSequence source, int begin, int end) {
+    this.types = types;
+    this.source = source;
+    this.index = begin;
+    this.end = end;
+  }
+
+  /** Parses {@code source} to a type, or returns null if it can't. */
+  static Type parse(TypeParser parser, CharSequence source) {
+    return parse(parser.resolvedTypes(), source, 0, source.length());
+  }
+
+  /**
+   * Parses the characters of {@code source} between {@code begin} and {@code end} to a type
+   * built through {@code types}, or returns null if it can't.
+   *
+   * @throws TypeException if a class can't be resolved or a type can't be built
+   */
+  static <T> T parse(TypeFactory<T> types, CharSequence source, int begin, int end) {
+    FastTypeParser<T> fast = new FastTypeParser<T>(types, source, begin, end);
+    try {
+      T type = fast.type();
+      if (type == null) return null;
+      fast.skipWhitespaces();
+      return fast.index == fast.end ? type : null;
+    } catch (TypeException e) {
+      throw e;
+    } catch (RuntimeException e) {
+      return null;
+    }
+  }
+
+  private T type() {
+    skipWhitespaces();
+    int from = index;
+    try {
+      return typeFromHere();
+    } catch (UnresolvedClassException | IllegalArgumentException e) {
+      throw new TypeException(e, from);
+    }
+  }
+
+  private T typeFromHere() {
+    if (index == end) return null;
+    T type;
+    char c = source.charAt(index);
+    if (c == '?') {
+      index++;
+      type = wildcardType();
+    } else if (c == '[') {
+      index++;
+      type = internalArrayClass();
+    } else {
+      type = classType();
+    }
+    if (type == null) return null;
+    while (skipTo('[')) {
+      if (!skipTo(']')) return null;
+      type = types.arrayOf(type);
+    }
+    return type;
+  }
+
+  private T wildcardType() {
+    int from = index;
+    skipWhitespaces();
+    if (skipWord("extends")) {
+      T bound = type();
+      return bound == null ? null : types.subtypeOf(bound);
+    }
+    if (skipWord("super")) {
+      T bound = type();
+      return bound == null ? null : types.supertypeOf(bound);
+    }
+    index = from;
+    return types.unboundedWildcard();
+  }
+
+  private T classType() {
+    String name = qualifiedName();
+    if (name == null) return null;
+    T raw = types.rawType(name);
+    if (!skipTo('<')) return raw;
+    List<T> args = typeArgs();
+    if (args == null) return null;
+    T type = types.parameterizedType(raw, args);
+    for (String memberName = memberName(); memberName != null; memberName = memberName()) {
+      if (skipTo('<')) {
+        args = typeArgs();
+        if (args == null) return null;
+      } else {
+        args = Collections.emptyList();
+      }
+      type = types.memberType(type, memberName, args);
+    }
+    return type;
+  }
+
+  /** Parses what follows the {@code <} of type arguments, or returns null if it can't. */
+  private List<T> typeArgs() {
+    List<T> args = new ArrayList<T>();
+    if (!skipTo('>')) {
+      do {
+        T arg = type();
+        if (arg == null) return null;
+        args.add(arg);
+      } while (skipTo(','));
+      if (!skipTo('>')) return null;
+    }
+    return args;
+  }
+
+  /**
+   * Parses the name of a member type following a parameterized type, as in {@code .Inner} or
+   * {@code $Inner}, or returns null if there isn't one.
+   */
+  private String memberName() {
+    int from = index;
+    boolean dotted = skipTo('.');
+    skipWhitespaces();
+    int nameFrom = index;
+    if ((dotted || (index < end && source.charAt(index) == '$')) && skipIdentifier()
+        && (dotted || index > nameFrom + 1)) {
+      return source.subSequence(dotted ? nameFrom : nameFrom + 1, index).toString();
+    }
+    index = from;
+    return null;
+  }
+
+  /** Parses what follows the first {@code [} of an internal array class name. */
+  private T internalArrayClass() {
+    int dimensions = 0;
+    while (skipTo('[')) {
+      dimensions++;
+    }
+    String name = qualifiedName();
+    if (name == null) return null;
+    T arrayClass = types.internalArrayClass(name);
+    if (arrayClass == null) return null;
+    for (int i = 0; i < dimensions; i++) {
+      arrayClass = types.arrayOf(arrayClass);
+    }
+    return arrayClass;
+  }
+
+  /**
+   * Parses one or more identifiers separated by {@code .} and returns the dot-joined name,
+   * or null if there isn't a qualified name at the current position.
+   */
+  private String qualifiedName() {
+    skipWhitespaces();
+    int from = index;
+    StringBuilder builder = null;  // Only needed if there are whitespaces around the dots.
+    for (;;) {
+      int wordFrom = index;
+      if (!skipIdentifier()) return null;
+      if (builder != null) builder.append(source, wordFrom, index);
+      int wordEnd = index;
+      if (!skipTo('.')) {
+        return builder == null ? source.subSequence(from, wordEnd).toString() : builder.toString();
+      }
+      skipWhitespaces();
+      if (builder == null && index - wordEnd > 1) {
+        builder = new StringBuilder().append(source, from, wordEnd);
+      }
+      if (builder != null) builder.append('.');
+    }
+  }
+
+  /** Skips an identifier, which mustn't be a keyword. */
+  private boolean skipIdentifier() {
+    int from = index;
+    int wordEnd = wordEnd();
+    if (wordEnd == from || isKeyword(from, wordEnd)) return false;
+    index = wordEnd;
+    return true;
+  }
+
+  /** Skips {@code keyword} if it's the next word. */
+  private boolean skipWord(String keyword) {
+    int wordEnd = wordEnd();
+    if (wordEnd - index != keyword.length() || !regionMatches(index, keyword)) return false;
+    index = wordEnd;
+    return true;
+  }
+
+  /** Returns the end of the word starting at the current position. */
+  private int wordEnd() {
+    int i = index;
+    if (i == end || !Character.isJavaIdentifierStart(source.charAt(i))) return i;
+    for (i++; i < end; i++) {
+      char c = source.charAt(i);
+      if (c != ';' && !Character.isJavaIdentifierPart(c)) break;
+    }
+    return i;
+  }
+
+  private boolean isKeyword(int from, int to) {
+    int length = to - from;
+    return (length == 7 && regionMatches(from, "extends"))
+        || (length == 5 && regionMatches(from, "super"));
+  }
+
+  private boolean regionMatches(int from, String word) {
+    for (int i = 0; i < word.length(); i++) {
+      if (source.charAt(from + i) != word.charAt(i)) return false;
+    }
+    return true;
+  }
+
+  /** Skips whitespaces followed by {@code c}, or stays put if {@code c} isn't next. */
+  private boolean skipTo(char c) {
+    int from = index;
+    skipWhitespaces();
+    if (index < end && source.charAt(index) == c) {
+      index++;
+      return true;
+    }
+    index = from;
+    return false;
+  }
+
+  private void skipWhitespaces() {
+    while (index < end && Character.isWhitespace(source.charAt(index))) {
+      index++;
+    }
+  }
+}
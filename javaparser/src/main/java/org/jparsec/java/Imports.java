@@ -0,0 +1,233 @@
+package org.jparsec.java;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Ordering;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Resolves simple class names through single-type imports such as {@code java.util.Map} and
+ * on-demand imports such as {@code java.util.*}, the same way as in a Java source file. Classes in
+ * {@code java.lang} are imported on demand implicitly.
+ *
+ * <p>Single-type imports are resolved upfront into a simple-name index. Names imported on demand
+ * are looked up in each package the first time, and the outcome is remembered, so that resolving
+ * the same name again is a single hash lookup. With a {@link ClassIndex}, packages on the indexed
+ * classpath are only searched for the names the index has in them.
+ */
+final class Imports {
+
+  /** Maximum number of remembered on-demand lookups. */
+  private static final long MAXIMUM_RESOLVED_NAMES = 10000;
+
+  /** The {@link #fingerprint} of the implicit {@code java.lang} import alone. */
+  static final long IMPLICIT_FINGERPRINT =
+      fingerprint(ImmutableMap.<String, Class<?>>of(), ImmutableList.of("java.lang"));
+
+  private final ClassResolver classes;
+  private final ImmutableMap<String, Class<?>> singleType;
+  private final ImmutableList<String> onDemandPackages;
+  private final ClassIndex index;
+  private final LoadingCache<String, Optional<Class<?>>> onDemand;
+
+  private Imports(
+      ClassResolver classes, ImmutableMap<String, Class<?>> singleType,
+      ImmutableList<String> onDemandPackages, ClassIndex index) {
+    this.classes = classes;
+    this.singleType = singleType;
+    this.onDemandPackages = onDemandPackages;
+    this.index = index;
+    this.onDemand = CacheBuilder.newBuilder()
+        .maximumSize(MAXIMUM_RESOLVED_NAMES)
+        .build(CacheLoader.from(this::findOnDemand));
+  }
+
+  /**
+   * Returns the imports of {@code imports}, each either a class name or a package name followed
+   * by {@code .*}, with classes loaded through {@code classes}.
+   *
+   * @throws IllegalArgumentException if an imported class can't be loaded, or two imported
+   *         classes have the same simple name
+   */
+  static Imports of(ClassResolver classes, Iterable<String> imports, ClassIndex index) {
+    Map<String, Class<?>> singleType = new LinkedHashMap<String, Class<?>>();
+    Set<String> onDemandPackages = new LinkedHashSet<String>();
+    for (String name : imports) {
+      name = name.trim();
+      if (name.endsWith(".*")) {
+        onDemandPackages.add(name.substring(0, name.length() - 2));
+        continue;
+      }
+      Class<?> cls = loadCanonical(classes, name);
+      String simpleName = name.substring(name.lastIndexOf('.') + 1);
+      Class<?> imported = singleType.put(simpleName, cls);
+      checkArgument(imported == null || imported == cls,
+          "%s is imported as both %s and %s", simpleName, imported, cls);
+    }
+    onDemandPackages.add("java.lang");
+    return new Imports(
+        classes, ImmutableMap.copyOf(singleType), ImmutableList.copyOf(onDemandPackages), index);
+  }
+
+  /**
+   * Returns the same imports, with names imported on demand loaded through {@code classes}, which
+   * must use the same class loader.
+   */
+  Imports withClasses(ClassResolver classes) {
+    return new Imports(classes, singleType, onDemandPackages, index);
+  }
+
+  /** Returns the same imports, with names imported on demand looked up in {@code index}. */
+  Imports withIndex(ClassIndex index) {
+    return new Imports(classes, singleType, onDemandPackages, index);
+  }
+
+  ClassIndex index() {
+    return index;
+  }
+
+  /** Returns true if only {@code java.lang} is imported, as when there are no imports. */
+  boolean isImplicitOnly() {
+    return singleType.isEmpty() && onDemandPackages.size() == 1;
+  }
+
+  /**
+   * Returns a hash of the imported class names and packages, regardless of their order, which
+   * tells whether two imports resolve names the same way.
+   */
+  long fingerprint() {
+    return fingerprint(singleType, onDemandPackages);
+  }
+
+  /**
+   * Resolves {@code name}, a simple class name or a qualified name, to a class. A qualified name
+   * whose first part is an imported class name refers to a member class of that class.
+   */
+  Class<?> resolve(String name) {
+    int dot = name.indexOf('.');
+    Class<?> cls = lookup(dot < 0 ? name : name.substring(0, dot));
+    if (cls == null) {
+      if (dot < 0) throw new UnresolvedClassException(name);
+      return classes.load(name);
+    }
+    return dot < 0 ? cls : classes.load(cls.getName() + name.substring(dot).replace('.', '$'));
+  }
+
+  /**
+   * Resolves {@code name} like {@link #resolve}, but to the binary name of the class. Only simple
+   * names imported on demand are looked up by loading classes. The first part of a qualified name
+   * is only looked up in the single-type imports and in the {@link ClassIndex}, since it's
+   * usually a package name; if it isn't found there, the name is taken to be fully qualified.
+   * Member classes aren't loaded.
+   */
+  String resolveName(String name) {
+    int dot = name.indexOf('.');
+    if (dot < 0) {
+      Class<?> cls = lookup(name);
+      if (cls == null) throw new UnresolvedClassException(name);
+      return cls.getName();
+    }
+    String outerName = indexedName(name.substring(0, dot));
+    return outerName == null ? name : outerName + name.substring(dot).replace('.', '$');
+  }
+
+  private Class<?> lookup(String simpleName) {
+    Class<?> cls = singleType.get(simpleName);
+    if (cls != null) return cls;
+    try {
+      return onDemand.getUnchecked(simpleName).orElse(null);
+    } catch (UncheckedExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  /**
+   * Returns the binary name of the class imported as {@code simpleName} by a single-type import,
+   * or on demand from a package in the index, or null if there's none.
+   */
+  private String indexedName(String simpleName) {
+    Class<?> cls = singleType.get(simpleName);
+    if (cls != null) return cls.getName();
+    if (index == null) return null;
+    String found = null;
+    List<String> indexed = index.classNames(simpleName);
+    for (String packageName : onDemandPackages) {
+      String className = packageName + '.' + simpleName;
+      if (index.hasPackage(packageName) && indexed.contains(className)) {
+        checkArgument(found == null,
+            "%s is ambiguous: both %s and %s are imported", simpleName, found, className);
+        found = className;
+      }
+    }
+    return found;
+  }
+
+  private Optional<Class<?>> findOnDemand(String simpleName) {
+    Class<?> found = null;
+    List<String> indexed = index == null ? null : index.classNames(simpleName);
+    for (String packageName : onDemandPackages) {
+      if (indexed != null && index.hasPackage(packageName)
+          && !indexed.contains(packageName + '.' + simpleName)) {
+        continue;
+      }
+      Class<?> cls;
+      try {
+        cls = classes.load(packageName + '.' + simpleName);
+      } catch (UnresolvedClassException e) {
+        continue;
+      }
+      checkArgument(found == null || found == cls,
+          "%s is ambiguous: both %s and %s are imported", simpleName, found, cls);
+      found = cls;
+    }
+    return Optional.ofNullable(found);
+  }
+
+  private static long fingerprint(
+      Map<String, Class<?>> singleType, List<String> onDemandPackages) {
+    Hasher hasher = Hashing.murmur3_128().newHasher();
+    for (String simpleName : Ordering.natural().sortedCopy(singleType.keySet())) {
+      hasher.putString(simpleName, UTF_8).putByte((byte) 0)
+          .putString(singleType.get(simpleName).getName(), UTF_8).putByte((byte) 0);
+    }
+    hasher.putByte((byte) 1);
+    for (String packageName : Ordering.natural().sortedCopy(onDemandPackages)) {
+      hasher.putString(packageName, UTF_8).putByte((byte) 0);
+    }
+    return hasher.hash().asLong();
+  }
+
+  /**
+   * Loads the class with canonical name {@code name}, where member classes are separated by
+   * {@code .} rather than by {@code $} as in their binary names.
+   */
+  private static Class<?> loadCanonical(ClassResolver classes, String name) {
+    StringBuilder binaryName = new StringBuilder(name);
+    for (int dot = name.length(); ; ) {
+      try {
+        return classes.load(binaryName.toString());
+      } catch (UnresolvedClassException e) {
+        dot = name.lastIndexOf('.', dot - 1);
+        checkArgument(dot > 0, "Cannot resolve import %s", name);
+        binaryName.setCharAt(dot, '$');
+      }
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package org.jparsec.java;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import org.codehaus.jparsec.error.ParserException;
+
+import com.google.common.reflect.TypeToken;
+
+/**
+ * The outcome of parsing one type expression: either the parsed type, or the parse error.
+ */
+public final class ParseResult {
+
+  private final String input;
+  private final TypeToken<?> type;
+  private final ParserException error;
+
+  private ParseResult(String input, TypeToken<?> type, ParserException error) {
+    this.input = checkNotNull(input);
+    this.type = type;
+    this.error = error;
+  }
+
+  /**
+   * Parses {@code input}, which may be a view of a larger buffer that's reused once this returns,
+   * such as a line of a mapped manifest. It's copied to a string once, either after parsing or,
+   * for a caching parser that needs the string as the key anyway, before.
+   */
+  static ParseResult parse(TypeParser parser, CharSequence input) {
+    String string = input instanceof String || parser.isCaching() ? input.toString() : null;
+    TypeToken<?> type;
+    try {
+      type = string == null ? parser.parse(input, 0, input.length()) : parser.parse(string);
+    } catch (ParserException e) {
+      return new ParseResult(string == null ? input.toString() : string, null, e);
+    }
+    return new ParseResult(string == null ? input.toString() : string, type, null);
+  }
+
+  /** Returns the parsed type expression. */
+  public String getInput() {
+    return input;
+  }
+
+  /** Returns true if {@link #getInput} was parsed successfully. */
+  public boolean isSuccess() {
+    return error == null;
+  }
+
+  /** Returns the parsed type, or throws the parse error if parsing failed. */
+  public TypeToken<?> getType() throws ParserException {
+    if (error != null) throw error;
+    return type;
+  }
+
+  /** Returns the parse error, or null if parsing succeeded. */
+  public ParserException getError() {
+    return error;
+  }
+
+  @Override public String toString() {
+    return error == null ? input + " -> " + type : input + " -> " + error.getMessage();
+  }
+}
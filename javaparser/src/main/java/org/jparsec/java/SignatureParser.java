@@ -0,0 +1,177 @@
+package org.jparsec.java;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A single-pass parser for JVM field descriptors such as {@code [Ljava/lang/String;} and generic
+ * field signatures such as {@code Ljava/util/Map<Ljava/lang/String;Ljava/util/List<[I>;>;}, as
+ * specified in JVMS 4.3.2 and 4.7.9.1.
+ *
+ * <p>Types are built through the {@link TypeParser} factories, the same way as for parsed type
+ * expressions. Type variables aren't supported, since the types must be reified.
+ */
+final class SignatureParser {
+
+  private final TypeParser parser;
+  private final String signature;
+  private final StringBuilder name = new StringBuilder();
+  private int index;
+
+  private SignatureParser(TypeParser parser, String signature) {
+    this.parser = parser;
+    this.signature = signature;
+  }
+
+  /**
+   * Parses {@code signature} to a type.
+   *
+   * @throws IllegalArgumentException if {@code signature} is malformed or has type variables
+   */
+  static Type parse(TypeParser parser, String signature) {
+    SignatureParser signatureParser = new SignatureParser(parser, signature);
+    Type type = signatureParser.fieldType();
+    if (signatureParser.index != signature.length()) {
+      throw signatureParser.unexpected();
+    }
+    return type;
+  }
+
+  private Type fieldType() {
+    char c = next();
+    switch (c) {
+      case 'B': return byte.class;
+      case 'C': return char.class;
+      case 'D': return double.class;
+      case 'F': return float.class;
+      case 'I': return int.class;
+      case 'J': return long.class;
+      case 'S': return short.class;
+      case 'Z': return boolean.class;
+      default:
+        index--;
+        return referenceType();
+    }
+  }
+
+  private Type referenceType() {
+    char c = next();
+    switch (c) {
+      case 'L':
+        return classType();
+      case '[':
+        return parser.newArrayType(fieldType());
+      case 'T':
+        index--;
+        throw new IllegalArgumentException(
+            "Type variable at index " + index + " of signature isn't reified: " + signature);
+      default:
+        index--;
+        throw unexpected();
+    }
+  }
+
+  /** Parses what follows the {@code L} of a class type signature, up to the {@code ;}. */
+  private Type classType() {
+    // The name is appended to what the enclosing class types have, and removed when done.
+    int nameStart = name.length();
+    Type type = null;
+    for (;;) {
+      appendIdentifier();
+      char c = next();
+      if (c == '/') {
+        // Package names only come before the first simple class name.
+        if (type != null) throw unexpectedPrevious();
+        name.append('.');
+        continue;
+      }
+      List<Type> typeArgs = null;
+      if (c == '<') {
+        typeArgs = typeArgs();
+        c = next();
+      }
+      type = simpleClassType(type, name.substring(nameStart), typeArgs);
+      if (c == ';') {
+        name.setLength(nameStart);
+        return type;
+      }
+      if (c != '.') throw unexpectedPrevious();
+      // The inner class name continues the binary name of its enclosing class.
+      name.append('$');
+    }
+  }
+
+  /** Builds the class type named {@code className}, a member of {@code ownerType} if not null. */
+  private Type simpleClassType(Type ownerType, String className, List<Type> typeArgs) {
+    Class<?> raw = parser.resolveClass(className);
+    if (ownerType instanceof ParameterizedType) {
+      return parser.newMemberType((ParameterizedType) ownerType, raw,
+          typeArgs == null ? Collections.<Type>emptyList() : typeArgs);
+    }
+    return typeArgs == null ? raw : parser.newParameterizedType(raw, typeArgs);
+  }
+
+  /** Parses what follows the {@code <} of type arguments, up to and including the {@code >}. */
+  private List<Type> typeArgs() {
+    List<Type> typeArgs = new ArrayList<Type>(2);
+    do {
+      char c = next();
+      switch (c) {
+        case '*':
+          typeArgs.add(TypeParser.UNBOUNDED_WILDCARD);
+          break;
+        case '+':
+          typeArgs.add(parser.subtypeOf(referenceType()));
+          break;
+        case '-':
+          typeArgs.add(parser.supertypeOf(referenceType()));
+          break;
+        default:
+          index--;
+          typeArgs.add(referenceType());
+      }
+    } while (!skip('>'));
+    return typeArgs;
+  }
+
+  private void appendIdentifier() {
+    int from = index;
+    while (index < signature.length() && !isDelimiter(signature.charAt(index))) {
+      index++;
+    }
+    if (index == from) throw unexpected();
+    name.append(signature, from, index);
+  }
+
+  private static boolean isDelimiter(char c) {
+    return c == '.' || c == ';' || c == '[' || c == '/' || c == '<' || c == '>' || c == ':';
+  }
+
+  private char next() {
+    if (index == signature.length()) throw unexpected();
+    return signature.charAt(index++);
+  }
+
+  private boolean skip(char c) {
+    if (index < signature.length() && signature.charAt(index) == c) {
+      index++;
+      return true;
+    }
+    return false;
+  }
+
+  private IllegalArgumentException unexpectedPrevious() {
+    index--;
+    return unexpected();
+  }
+
+  private IllegalArgumentException unexpected() {
+    return new IllegalArgumentException(index == signature.length()
+        ? "Unexpected end of signature: " + signature
+        : "Unexpected '" + signature.charAt(index) + "' at index " + index + " of signature: "
+            + signature);
+  }
+}
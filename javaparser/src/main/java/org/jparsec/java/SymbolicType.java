@@ -0,0 +1,274 @@
+package org.jparsec.java;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.List;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.reflect.TypeToken;
+
+/**
+ * A type parsed by {@link TypeParser#parseSymbolic}, which refers to classes by their binary names
+ * and doesn't load them until it's {@linkplain #resolve resolved}.
+ *
+ * <p>Symbolic types are equal if they have the same structure and name the same classes, so they
+ * can be compared, hashed and routed by name for classes that aren't loaded, or aren't even on the
+ * classpath. {@link #toString} writes a symbolic type the same way as {@link TypeWriter} writes
+ * the resolved type.
+ *
+ * <p>Only the syntax is checked by parsing. Whether the classes exist, and whether they have as
+ * many type parameters as type arguments, is checked when the type is resolved.
+ */
+public abstract class SymbolicType {
+
+  /** Resolves the type, with the configuration of the parser that parsed it. */
+  private final TypeParser parser;
+
+  /** The resolved type, or null until it's resolved. */
+  private volatile TypeToken<?> resolved;
+
+  SymbolicType(TypeParser parser) {
+    this.parser = parser;
+  }
+
+  TypeParser parser() {
+    return parser;
+  }
+
+  /**
+   * Resolves this type by loading the classes it names, through the class loader and with the
+   * configuration of the {@link TypeParser} that parsed it. The result is remembered, so the
+   * classes are loaded once at most.
+   *
+   * @throws UnresolvedClassException if a class can't be loaded
+   * @throws IllegalArgumentException if the type is invalid, such as a parameterized type with the
+   *         wrong number of type arguments
+   */
+  public final TypeToken<?> resolve() {
+    TypeToken<?> result = resolved;
+    if (result == null) {
+      result = parser.toTypeToken(resolveType());
+      resolved = result;
+    }
+    return result;
+  }
+
+  /** Builds the type through the factories of the parser, without remembering it. */
+  abstract Type resolveType();
+
+  abstract void appendTo(StringBuilder builder);
+
+  /** Returns this type in the syntax {@link TypeParser} accepts. */
+  @Override public final String toString() {
+    StringBuilder builder = new StringBuilder();
+    appendTo(builder);
+    return builder.toString();
+  }
+
+  /** A primitive type or a class other than an array class, by name. */
+  public static final class Named extends SymbolicType {
+    private final String name;
+
+    Named(TypeParser parser, String name) {
+      super(parser);
+      this.name = checkNotNull(name);
+    }
+
+    /** Returns the name of the type, as returned by {@link Class#getName}. */
+    public String getName() {
+      return name;
+    }
+
+    /** Returns true if this is a primitive type or {@code void}. */
+    public boolean isPrimitive() {
+      return TypeParser.PRIMITIVE_TYPES.containsKey(name);
+    }
+
+    @Override Type resolveType() {
+      return parser().resolveClass(name);
+    }
+
+    @Override void appendTo(StringBuilder builder) {
+      builder.append(name);
+    }
+
+    @Override public boolean equals(Object obj) {
+      return obj instanceof Named && name.equals(((Named) obj).name);
+    }
+
+    @Override public int hashCode() {
+      return name.hashCode();
+    }
+  }
+
+  /**
+   * A parameterized type, such as {@code java.util.List<String>}, or a member type of one, such as
+   * {@code Outer<String>.Inner<Integer>}.
+   */
+  public static final class Parameterized extends SymbolicType {
+    private final Parameterized ownerType;
+    private final Named rawType;
+    private final ImmutableList<SymbolicType> typeArgs;
+
+    Parameterized(
+        TypeParser parser, Parameterized ownerType, Named rawType, List<SymbolicType> typeArgs) {
+      super(parser);
+      this.ownerType = ownerType;
+      this.rawType = checkNotNull(rawType);
+      this.typeArgs = ImmutableList.copyOf(typeArgs);
+    }
+
+    /**
+     * Returns the parameterized type this is a member type of, or null if this isn't a member
+     * type of a parameterized type.
+     */
+    public Parameterized getOwnerType() {
+      return ownerType;
+    }
+
+    public Named getRawType() {
+      return rawType;
+    }
+
+    public List<SymbolicType> getTypeArguments() {
+      return typeArgs;
+    }
+
+    @Override Type resolveType() {
+      Class<?> raw = (Class<?>) rawType.resolve().getType();
+      ImmutableList.Builder<Type> args = ImmutableList.builder();
+      for (SymbolicType typeArg : typeArgs) {
+        args.add(typeArg.resolve().getType());
+      }
+      return ownerType == null
+          ? parser().newParameterizedType(raw, args.build())
+          : parser().newMemberType(
+              (ParameterizedType) ownerType.resolve().getType(), raw, args.build());
+    }
+
+    @Override void appendTo(StringBuilder builder) {
+      if (ownerType == null) {
+        // "<>" is written for a class without type parameters, so it still parses as parameterized.
+        rawType.appendTo(builder);
+        appendTypeArgs(builder);
+      } else {
+        ownerType.appendTo(builder);
+        String ownerName = ownerType.rawType.getName();
+        builder.append('.').append(rawType.getName(), ownerName.length() + 1,
+            rawType.getName().length());
+        if (!typeArgs.isEmpty()) appendTypeArgs(builder);
+      }
+    }
+
+    private void appendTypeArgs(StringBuilder builder) {
+      builder.append('<');
+      for (int i = 0; i < typeArgs.size(); i++) {
+        if (i > 0) builder.append(", ");
+        typeArgs.get(i).appendTo(builder);
+      }
+      builder.append('>');
+    }
+
+    @Override public boolean equals(Object obj) {
+      if (obj instanceof Parameterized) {
+        Parameterized that = (Parameterized) obj;
+        return Objects.equal(ownerType, that.ownerType)
+            && rawType.equals(that.rawType)
+            && typeArgs.equals(that.typeArgs);
+      }
+      return false;
+    }
+
+    @Override public int hashCode() {
+      return Objects.hashCode(ownerType, rawType, typeArgs);
+    }
+  }
+
+  /** An array type, such as {@code int[]} or {@code java.util.List<String>[]}. */
+  public static final class Array extends SymbolicType {
+    private final SymbolicType componentType;
+
+    Array(TypeParser parser, SymbolicType componentType) {
+      super(parser);
+      this.componentType = checkNotNull(componentType);
+    }
+
+    public SymbolicType getComponentType() {
+      return componentType;
+    }
+
+    @Override Type resolveType() {
+      return parser().newArrayType(componentType.resolve().getType());
+    }
+
+    @Override void appendTo(StringBuilder builder) {
+      componentType.appendTo(builder);
+      builder.append("[]");
+    }
+
+    @Override public boolean equals(Object obj) {
+      return obj instanceof Array && componentType.equals(((Array) obj).componentType);
+    }
+
+    @Override public int hashCode() {
+      return componentType.hashCode() * 31 + 1;
+    }
+  }
+
+  /** A wildcard type, such as {@code ?}, {@code ? extends Number} or {@code ? super Integer}. */
+  public static final class Wildcard extends SymbolicType {
+    private final SymbolicType upperBound;
+    private final SymbolicType lowerBound;
+
+    /** Creates the {@code ?} wildcard if both bounds are null. */
+    Wildcard(TypeParser parser, SymbolicType upperBound, SymbolicType lowerBound) {
+      super(parser);
+      this.upperBound = upperBound;
+      this.lowerBound = lowerBound;
+    }
+
+    /** Returns the {@code extends} bound, or null if there's none. */
+    public SymbolicType getUpperBound() {
+      return upperBound;
+    }
+
+    /** Returns the {@code super} bound, or null if there's none. */
+    public SymbolicType getLowerBound() {
+      return lowerBound;
+    }
+
+    @Override Type resolveType() {
+      if (lowerBound != null) return parser().supertypeOf(lowerBound.resolve().getType());
+      if (upperBound != null) return parser().subtypeOf(upperBound.resolve().getType());
+      return TypeParser.UNBOUNDED_WILDCARD;
+    }
+
+    @Override void appendTo(StringBuilder builder) {
+      if (lowerBound != null) {
+        builder.append("? super ");
+        lowerBound.appendTo(builder);
+      } else if (upperBound != null) {
+        builder.append("? extends ");
+        upperBound.appendTo(builder);
+      } else {
+        builder.append('?');
+      }
+    }
+
+    @Override public boolean equals(Object obj) {
+      if (obj instanceof Wildcard) {
+        Wildcard that = (Wildcard) obj;
+        return Objects.equal(upperBound, that.upperBound)
+            && Objects.equal(lowerBound, that.lowerBound);
+      }
+      return false;
+    }
+
+    @Override public int hashCode() {
+      return Objects.hashCode(upperBound, lowerBound);
+    }
+  }
+}
@@ -0,0 +1,459 @@
+package org.jparsec.java;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.reflect.TypeToken;
+
+/**
+ * Encodes types to a compact binary form, and decodes them back without parsing.
+ *
+ * <p>An encoded type starts with a version byte, followed by a dictionary of the class names it
+ * uses, each written once, and then the type itself as a tree of tagged nodes referring to the
+ * dictionary by index. Counts, lengths and indexes are written as unsigned varints. An encoded
+ * type is self-delimiting, so encoded types can be written back to back to a stream.
+ *
+ * <p>Decoding resolves classes and builds types through a {@link TypeParser}, so the decoded types
+ * are interned, bounds checked etc. as configured for that parser.
+ */
+public final class TypeCodec {
+
+  private static final int VERSION = 1;
+
+  private static final int CLASS = 0;
+  private static final int PARAMETERIZED = 1;
+  private static final int MEMBER = 2;
+  private static final int UNBOUNDED_WILDCARD = 3;
+  private static final int SUBTYPE_WILDCARD = 4;
+  private static final int SUPERTYPE_WILDCARD = 5;
+  private static final int GENERIC_ARRAY = 6;
+  /** A type written before, by index, in encodings of several types. */
+  private static final int SHARED = 7;
+
+  /**
+   * The largest count or length read from a stream, whose remaining size isn't known. A single type
+   * never names that many classes, nor has that many type arguments.
+   */
+  private static final int MAX_STREAM_LENGTH = 1 << 16;
+
+  private final TypeParser parser;
+
+  /** Creates a codec decoding types with a default {@link TypeParser}. */
+  public TypeCodec() {
+    this(new TypeParser());
+  }
+
+  /** Creates a codec decoding types with {@code parser}. */
+  public TypeCodec(TypeParser parser) {
+    this.parser = checkNotNull(parser);
+  }
+
+  /** Returns the encoding of {@code type}. */
+  public byte[] encode(TypeToken<?> type) {
+    return new Encoder().add(type.getType()).toByteArray();
+  }
+
+  /**
+   * Writes the encoding of {@code type} to {@code buffer}.
+   *
+   * @throws java.nio.BufferOverflowException if there isn't enough room left in {@code buffer}
+   */
+  public void encode(TypeToken<?> type, ByteBuffer buffer) {
+    new Encoder().add(type.getType()).writeTo(buffer);
+  }
+
+  /** Writes the encoding of {@code type} to {@code out}. */
+  public void encode(TypeToken<?> type, OutputStream out) throws IOException {
+    out.write(encode(type));
+  }
+
+  /**
+   * Decodes the type encoded in {@code bytes}.
+   *
+   * @throws IllegalArgumentException if {@code bytes} isn't a valid encoding
+   * @throws UnresolvedClassException if a class can't be loaded
+   */
+  public TypeToken<?> decode(byte[] bytes) {
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    TypeToken<?> type = decode(buffer);
+    checkArgument(!buffer.hasRemaining(), "%s bytes after the encoded type", buffer.remaining());
+    return type;
+  }
+
+  /**
+   * Decodes the type encoded at the position of {@code buffer}, and moves the position past it.
+   *
+   * @throws IllegalArgumentException if the bytes aren't a valid encoding
+   * @throws java.nio.BufferUnderflowException if the encoding is truncated
+   * @throws UnresolvedClassException if a class can't be loaded
+   */
+  public TypeToken<?> decode(ByteBuffer buffer) {
+    try {
+      Decoder decoder = new Decoder(buffer::get, buffer.remaining());
+      decoder.readDictionary();
+      return decoder.decode();
+    } catch (IOException e) {
+      throw new AssertionError(e);  // Reading from a buffer doesn't do I/O.
+    }
+  }
+
+  /**
+   * Decodes the next type encoded in {@code in}, reading no further than its end.
+   *
+   * @throws EOFException if the encoding is truncated
+   * @throws IllegalArgumentException if the bytes aren't a valid encoding
+   * @throws UnresolvedClassException if a class can't be loaded
+   */
+  public TypeToken<?> decode(InputStream in) throws IOException {
+    Decoder decoder = new Decoder(() -> {
+      int b = in.read();
+      if (b < 0) throw new EOFException();
+      return (byte) b;
+    }, MAX_STREAM_LENGTH);
+    decoder.readDictionary();
+    return decoder.decode();
+  }
+
+  /**
+   * Returns the encoding of all of {@code types}, with a single dictionary of the class names they
+   * use, followed by the types back to back. Each distinct parameterized, wildcard or array type
+   * is written once, and referred to by index after that, so that it's also decoded once.
+   */
+  static byte[] encodeAll(Iterable<? extends TypeToken<?>> types) {
+    Encoder encoder = new Encoder();
+    encoder.shared = new HashMap<Type, Integer>();
+    for (TypeToken<?> type : types) {
+      encoder.add(type.getType());
+    }
+    return encoder.toByteArray();
+  }
+
+  /**
+   * Decodes {@code count} types encoded by {@link #encodeAll} at the position of {@code buffer},
+   * resolving each class name once.
+   */
+  List<TypeToken<?>> decodeAll(ByteBuffer buffer, int count) {
+    Decoder decoder = new Decoder(buffer::get, buffer.remaining());
+    decoder.shared = new ArrayList<Type>();
+    List<TypeToken<?>> types = new ArrayList<TypeToken<?>>(count);
+    try {
+      decoder.readDictionary();
+      for (int i = 0; i < count; i++) {
+        types.add(decoder.decode());
+      }
+    } catch (IOException e) {
+      throw new AssertionError(e);  // Reading from a buffer doesn't do I/O.
+    }
+    return types;
+  }
+
+  /** Writes types, collecting their class names as it goes. */
+  private static final class Encoder {
+    private final Map<String, Integer> names = new LinkedHashMap<String, Integer>();
+    private byte[] tree = new byte[32];
+    private int treeSize;
+
+    /** Indexes of the types written so far, if types are shared. */
+    Map<Type, Integer> shared;
+
+    Encoder add(Type type) {
+      writeType(type);
+      return this;
+    }
+
+    byte[] toByteArray() {
+      ByteBuffer buffer = ByteBuffer.allocate(size());
+      writeTo(buffer);
+      return buffer.array();
+    }
+
+    /** Returns the size of the whole encoding. */
+    int size() {
+      int size = 1 + varintSize(names.size());
+      for (String name : names.keySet()) {
+        int length = utf8Length(name);
+        size += varintSize(length) + length;
+      }
+      return size + treeSize;
+    }
+
+    void writeTo(ByteBuffer buffer) {
+      buffer.put((byte) VERSION);
+      putVarint(buffer, names.size());
+      for (String name : names.keySet()) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        putVarint(buffer, bytes.length);
+        buffer.put(bytes);
+      }
+      buffer.put(tree, 0, treeSize);
+    }
+
+    private void writeType(Type type) {
+      if (type instanceof Class<?>) {
+        writeByte(CLASS);
+        writeName((Class<?>) type);
+        return;
+      }
+      Integer index = shared == null ? null : shared.get(type);
+      if (index != null) {
+        writeByte(SHARED);
+        writeVarint(index);
+        return;
+      }
+      writeCompositeType(type);
+      // Indexed in the order the types are completed, the same way as they are decoded.
+      if (shared != null) shared.put(type, shared.size());
+    }
+
+    private void writeCompositeType(Type type) {
+      if (type instanceof ParameterizedType) {
+        ParameterizedType parameterizedType = (ParameterizedType) type;
+        Type ownerType = parameterizedType.getOwnerType();
+        if (ownerType instanceof ParameterizedType) {
+          writeByte(MEMBER);
+          writeType(ownerType);
+        } else {
+          // A raw owner type is implied by the raw type, as in Types.newParameterizedType().
+          writeByte(PARAMETERIZED);
+        }
+        writeName((Class<?>) parameterizedType.getRawType());
+        Type[] args = parameterizedType.getActualTypeArguments();
+        writeVarint(args.length);
+        for (Type arg : args) {
+          writeType(arg);
+        }
+      } else if (type instanceof WildcardType) {
+        WildcardType wildcardType = (WildcardType) type;
+        Type[] lowerBounds = wildcardType.getLowerBounds();
+        Type[] upperBounds = wildcardType.getUpperBounds();
+        checkArgument(lowerBounds.length <= 1 && upperBounds.length == 1,
+            "Wildcard type with multiple bounds: %s", type);
+        if (lowerBounds.length == 1) {
+          writeByte(SUPERTYPE_WILDCARD);
+          writeType(lowerBounds[0]);
+        } else if (upperBounds[0] == Object.class) {
+          writeByte(UNBOUNDED_WILDCARD);
+        } else {
+          writeByte(SUBTYPE_WILDCARD);
+          writeType(upperBounds[0]);
+        }
+      } else if (type instanceof GenericArrayType) {
+        writeByte(GENERIC_ARRAY);
+        writeType(((GenericArrayType) type).getGenericComponentType());
+      } else {
+        throw new IllegalArgumentException(type + " isn't a reified type");
+      }
+    }
+
+    private void writeName(Class<?> cls) {
+      String name = cls.getName();
+      Integer index = names.get(name);
+      if (index == null) {
+        index = names.size();
+        names.put(name, index);
+      }
+      writeVarint(index);
+    }
+
+    private void writeVarint(int value) {
+      while ((value & ~0x7F) != 0) {
+        writeByte((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      writeByte(value);
+    }
+
+    private void writeByte(int b) {
+      if (treeSize == tree.length) {
+        tree = Arrays.copyOf(tree, tree.length * 2);
+      }
+      tree[treeSize++] = (byte) b;
+    }
+
+    private static void putVarint(ByteBuffer buffer, int value) {
+      while ((value & ~0x7F) != 0) {
+        buffer.put((byte) ((value & 0x7F) | 0x80));
+        value >>>= 7;
+      }
+      buffer.put((byte) value);
+    }
+
+    private static int varintSize(int value) {
+      int size = 1;
+      while ((value & ~0x7F) != 0) {
+        size++;
+        value >>>= 7;
+      }
+      return size;
+    }
+
+    private static int utf8Length(String name) {
+      int length = name.length();
+      for (int i = 0; i < name.length(); i++) {
+        if (name.charAt(i) >= 0x80) {
+          return name.getBytes(StandardCharsets.UTF_8).length;
+        }
+      }
+      return length;
+    }
+  }
+
+  /**
+   * Thrown when a decoded type can't be built from its classes as they are now, such as a class
+   * whose number of type parameters changed since the type was encoded.
+   */
+  static final class IncompatibleTypeException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    IncompatibleTypeException(IllegalArgumentException cause) {
+      super(cause.getMessage(), cause);
+    }
+  }
+
+  /** Source of the encoded bytes. */
+  private interface ByteSource {
+    byte read() throws IOException;
+  }
+
+  /** Reads types, resolving their class names through {@link #parser}. */
+  private final class Decoder {
+    private final ByteSource source;
+
+    /**
+     * The most bytes there can be left to read. Each class name, name byte and type argument takes
+     * at least a byte, so this bounds the counts and lengths read, before anything is allocated.
+     */
+    private final int limit;
+
+    private Class<?>[] classes;
+
+    /** The composite types decoded so far, if types are shared. */
+    List<Type> shared;
+
+    Decoder(ByteSource source, int limit) {
+      this.source = source;
+      this.limit = limit;
+    }
+
+    void readDictionary() throws IOException {
+      int version = source.read();
+      checkArgument(version == VERSION, "Unsupported encoding version: %s", version);
+      classes = new Class<?>[readLength()];
+      for (int i = 0; i < classes.length; i++) {
+        byte[] bytes = new byte[readLength()];
+        for (int j = 0; j < bytes.length; j++) {
+          bytes[j] = source.read();
+        }
+        classes[i] = parser.resolveClass(new String(bytes, StandardCharsets.UTF_8));
+      }
+    }
+
+    /** Reads the next type, after the dictionary. */
+    TypeToken<?> decode() throws IOException {
+      return parser.toTypeToken(readType());
+    }
+
+    private Type readType() throws IOException {
+      int tag = source.read();
+      if (tag == CLASS) return readClass();
+      if (shared == null) return readCompositeType(tag);
+      if (tag == SHARED) {
+        int index = readVarint();
+        checkArgument(index < shared.size(), "Shared type %s out of %s", index, shared.size());
+        return shared.get(index);
+      }
+      Type type = readCompositeType(tag);
+      shared.add(type);
+      return type;
+    }
+
+    private Type readCompositeType(int tag) throws IOException {
+      switch (tag) {
+        case PARAMETERIZED:
+          return newParameterizedType(null, readClass(), readTypeArgs());
+        case MEMBER:
+          Type ownerType = readType();
+          checkArgument(ownerType instanceof ParameterizedType,
+              "Owner type %s isn't parameterized", ownerType);
+          return newParameterizedType((ParameterizedType) ownerType, readClass(), readTypeArgs());
+        case UNBOUNDED_WILDCARD:
+          return TypeParser.UNBOUNDED_WILDCARD;
+        case SUBTYPE_WILDCARD:
+          return parser.subtypeOf(readType());
+        case SUPERTYPE_WILDCARD:
+          return parser.supertypeOf(readType());
+        case GENERIC_ARRAY:
+          return parser.newArrayType(readType());
+        default:
+          throw new IllegalArgumentException("Unknown tag: " + tag);
+      }
+    }
+
+    /**
+     * Builds a parameterized type through the parser, which rejects it if the classes changed
+     * since it was encoded, such as a class with other type parameters.
+     */
+    private ParameterizedType newParameterizedType(
+        ParameterizedType ownerType, Class<?> raw, List<Type> typeArgs) {
+      try {
+        return ownerType == null
+            ? parser.newParameterizedType(raw, typeArgs)
+            : parser.newMemberType(ownerType, raw, typeArgs);
+      } catch (IllegalArgumentException e) {
+        throw new IncompatibleTypeException(e);
+      }
+    }
+
+    private Class<?> readClass() throws IOException {
+      int index = readVarint();
+      checkArgument(index < classes.length, "Class index %s out of %s", index, classes.length);
+      return classes[index];
+    }
+
+    private List<Type> readTypeArgs() throws IOException {
+      int count = readLength();
+      List<Type> args = new ArrayList<Type>(count);
+      for (int i = 0; i < count; i++) {
+        args.add(readType());
+      }
+      return args;
+    }
+
+    /** Reads a count or length, which can't be more than the bytes left. */
+    private int readLength() throws IOException {
+      int length = readVarint();
+      checkArgument(length <= limit, "Length %s exceeds the %s bytes left", length, limit);
+      return length;
+    }
+
+    private int readVarint() throws IOException {
+      int value = 0;
+      for (int shift = 0; shift < 32; shift += 7) {
+        byte b = source.read();
+        value |= (b & 0x7F) << shift;
+        if (b >= 0) {
+          checkArgument(value >= 0, "Varint out of range");
+          return value;
+        }
+      }
+      throw new IllegalArgumentException("Varint too long");
+    }
+  }
+}
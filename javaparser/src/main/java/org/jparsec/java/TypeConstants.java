@@ -0,0 +1,169 @@
+package org.jparsec.java;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.reflect.TypeToken;
+
+/**
+ * An immutable table of prebuilt types, looked up by {@link TypeParser} before parsing.
+ *
+ * <p>A type is found by its canonical string, that is, its {@link TypeToken#toString} form,
+ * and the same form with {@code java.lang} classes by their simple names (such as
+ * {@code java.util.List<String>}). Parsed types that are equal to a constant are also replaced by
+ * the constant, so that frequently used types are shared.
+ *
+ * <p>{@link #jdk} has common JDK types such as {@code ?}, {@code Class<?>} and
+ * {@code java.util.Map<String, Object>}. Applications can add their own types at startup, for
+ * example: <pre>   {@code
+ *   TypeParser parser = new TypeParser().withConstants(
+ *       TypeConstants.jdk().plus(new TypeToken<List<Order>>() {}));
+ * }</pre>
+ */
+public final class TypeConstants {
+
+  private static final TypeConstants NONE = new TypeConstants(
+      ImmutableMap.<String, TypeToken<?>>of(), ImmutableMap.<Type, TypeToken<?>>of());
+
+  private static final TypeConstants JDK = NONE.plus(jdkTypes());
+
+  private final ImmutableMap<String, TypeToken<?>> byString;
+  private final ImmutableMap<Type, TypeToken<?>> byType;
+
+  private TypeConstants(
+      ImmutableMap<String, TypeToken<?>> byString, ImmutableMap<Type, TypeToken<?>> byType) {
+    this.byString = byString;
+    this.byType = byType;
+  }
+
+  /** Returns the table of common JDK types, which {@link TypeParser} uses by default. */
+  public static TypeConstants jdk() {
+    return JDK;
+  }
+
+  /** Returns the empty table. */
+  public static TypeConstants none() {
+    return NONE;
+  }
+
+  /** Returns a table with the types in this table and {@code types}. */
+  public TypeConstants plus(TypeToken<?>... types) {
+    return plus(Arrays.asList(types));
+  }
+
+  /** Returns a table with the types in this table and {@code types}. */
+  public TypeConstants plus(Iterable<? extends TypeToken<?>> types) {
+    Map<String, TypeToken<?>> newByString = new HashMap<String, TypeToken<?>>(byString);
+    Map<Type, TypeToken<?>> newByType = new HashMap<Type, TypeToken<?>>(byType);
+    for (TypeToken<?> type : types) {
+      String shortName = appendShortName(type.getType(), new StringBuilder()).toString();
+      newByType.put(type.getType(), type);
+      newByString.put(type.toString(), type);
+      newByString.put(shortName, type);
+    }
+    return new TypeConstants(ImmutableMap.copyOf(newByString), ImmutableMap.copyOf(newByType));
+  }
+
+  /** Returns the constant written as {@code string}, or null if there isn't one. */
+  TypeToken<?> get(String string) {
+    return byString.get(string);
+  }
+
+  /** Returns the constant equal to {@code type}, or null if there isn't one. */
+  TypeToken<?> get(Type type) {
+    return byType.get(type);
+  }
+
+  /** Writes {@code type} with {@code java.lang} classes by their simple names. */
+  private static StringBuilder appendShortName(Type type, StringBuilder builder) {
+    if (type instanceof Class<?>) {
+      Class<?> cls = (Class<?>) type;
+      if (cls.isArray()) {
+        return appendShortName(cls.getComponentType(), builder).append("[]");
+      }
+      return builder.append(
+          cls.getName().equals("java.lang." + cls.getSimpleName())
+              ? cls.getSimpleName()
+              : cls.getName());
+    }
+    if (type instanceof ParameterizedType) {
+      ParameterizedType parameterizedType = (ParameterizedType) type;
+      Type ownerType = parameterizedType.getOwnerType();
+      Class<?> rawType = (Class<?>) parameterizedType.getRawType();
+      if (ownerType instanceof ParameterizedType) {
+        appendShortName(ownerType, builder).append('$').append(rawType.getSimpleName());
+      } else {
+        appendShortName(rawType, builder);
+      }
+      Type[] args = parameterizedType.getActualTypeArguments();
+      if (args.length == 0) return builder;
+      builder.append('<');
+      for (int i = 0; i < args.length; i++) {
+        if (i > 0) builder.append(", ");
+        appendShortName(args[i], builder);
+      }
+      return builder.append('>');
+    }
+    if (type instanceof WildcardType) {
+      WildcardType wildcardType = (WildcardType) type;
+      Type[] lowerBounds = wildcardType.getLowerBounds();
+      Type[] upperBounds = wildcardType.getUpperBounds();
+      if (lowerBounds.length > 0) {
+        return appendShortName(lowerBounds[0], builder.append("? super "));
+      }
+      if (upperBounds[0] == Object.class) {
+        return builder.append('?');
+      }
+      return appendShortName(upperBounds[0], builder.append("? extends "));
+    }
+    if (type instanceof GenericArrayType) {
+      return appendShortName(((GenericArrayType) type).getGenericComponentType(), builder)
+          .append("[]");
+    }
+    checkArgument(false, "%s isn't a reified type", type);
+    return builder;
+  }
+
+  private static ImmutableList<TypeToken<?>> jdkTypes() {
+    Type unbounded = TypeParser.UNBOUNDED_WILDCARD;
+    return ImmutableList.<TypeToken<?>>of(
+        TypeToken.of(unbounded),
+        parameterized(Class.class, unbounded),
+        parameterized(Enum.class, unbounded),
+        parameterized(Comparable.class, unbounded),
+        parameterized(Iterable.class, unbounded),
+        parameterized(Collection.class, unbounded),
+        parameterized(List.class, unbounded),
+        parameterized(Set.class, unbounded),
+        parameterized(Map.class, unbounded, unbounded),
+        parameterized(Optional.class, unbounded),
+        parameterized(Collection.class, String.class),
+        parameterized(List.class, String.class),
+        parameterized(List.class, Object.class),
+        parameterized(List.class, Integer.class),
+        parameterized(List.class, Long.class),
+        parameterized(Set.class, String.class),
+        parameterized(Map.class, String.class, Object.class),
+        parameterized(Map.class, String.class, String.class),
+        parameterized(Map.class, String.class, Integer.class),
+        parameterized(Map.class, String.class, Long.class),
+        parameterized(Optional.class, String.class));
+  }
+
+  private static TypeToken<?> parameterized(Class<?> raw, Type... args) {
+    return TypeToken.of(Types.intern(Types.newParameterizedType(raw, Arrays.asList(args))));
+  }
+}
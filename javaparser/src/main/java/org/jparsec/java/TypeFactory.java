@@ -0,0 +1,45 @@
+package org.jparsec.java;
+
+import java.util.List;
+
+/**
+ * Builds the types that {@link FastTypeParser} and the {@link TypeParser} grammar parse, so that
+ * the same parsers produce either resolved {@link java.lang.reflect.Type}s or
+ * {@link SymbolicType}s.
+ *
+ * <p>The methods may throw {@link UnresolvedClassException} or {@link IllegalArgumentException}
+ * to reject a type, which both parsers report as the cause of a
+ * {@link org.codehaus.jparsec.error.ParserException}.
+ */
+interface TypeFactory<T> {
+
+  /** Returns the primitive type or class {@code name}, as written in a type expression. */
+  T rawType(String name);
+
+  /**
+   * Returns the array class of an internal name such as {@code [Z} or
+   * {@code [Ljava.lang.String;}, with the leading {@code [} already stripped as {@code name}.
+   * Returns null if {@code name} isn't in the internal format.
+   */
+  T internalArrayClass(String name);
+
+  /** Returns {@code rawType}, as built by {@link #rawType}, parameterized by {@code typeArgs}. */
+  T parameterizedType(T rawType, List<T> typeArgs);
+
+  /**
+   * Returns the member type {@code names} of the parameterized {@code ownerType}, parameterized
+   * by {@code typeArgs}. {@code names} can be several {@code $} separated names such as
+   * {@code Inner$Deeper}, in which case each name but the last is a member type without type
+   * arguments.
+   */
+  T memberType(T ownerType, String names, List<T> typeArgs);
+
+  T arrayOf(T componentType);
+
+  T subtypeOf(T bound);
+
+  T supertypeOf(T bound);
+
+  /** Returns the {@code ?} wildcard. */
+  T unboundedWildcard();
+}
@@ -0,0 +1,153 @@
+package org.jparsec.java;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.reflect.TypeToken;
+
+/**
+ * Answers subtype and assignability queries between types, typically those returned by a
+ * {@link TypeParser}, remembering the answers.
+ *
+ * <p>Answers are memoized by pair of types, and the superclasses and interfaces of each raw class
+ * are collected once, so that a pair of types whose raw classes aren't related is rejected without
+ * walking the generic supertypes. Types are compared by {@code equals()}, which is cheapest for
+ * interned types (see {@link TypeParser#withInterning}).
+ *
+ * <p>The number of remembered answers and raw class closures is bounded by the maximum size given
+ * at construction. Both refer to their classes strongly, so an index keeps the classes it was
+ * asked about loaded until they're evicted. Instances are safe to use concurrently.
+ */
+public final class TypeIndex {
+
+  private static final long DEFAULT_MAXIMUM_SIZE = 10000;
+
+  private final LoadingCache<TypePair, Boolean> subtypes;
+  private final LoadingCache<Class<?>, ImmutableSet<Class<?>>> rawSupertypes;
+
+  /** Creates an index remembering up to 10000 answers. */
+  public TypeIndex() {
+    this(DEFAULT_MAXIMUM_SIZE);
+  }
+
+  /** Creates an index remembering up to {@code maximumSize} answers. */
+  public TypeIndex(long maximumSize) {
+    checkArgument(maximumSize >= 0, "maximumSize (%s) must not be negative", maximumSize);
+    this.subtypes = CacheBuilder.newBuilder()
+        .maximumSize(maximumSize)
+        .recordStats()
+        .build(CacheLoader.from(pair -> computeIsSubtype(pair.type, pair.supertype)));
+    this.rawSupertypes = CacheBuilder.newBuilder()
+        .maximumSize(maximumSize)
+        .build(CacheLoader.from(TypeIndex::collectRawSupertypes));
+  }
+
+  /** Returns true if {@code type} is a subtype of {@code supertype}. */
+  public boolean isSubtypeOf(TypeToken<?> type, TypeToken<?> supertype) {
+    return isSubtypeOf(type.getType(), supertype.getType());
+  }
+
+  /** Returns true if {@code type} is a subtype of {@code supertype}. */
+  public boolean isSubtypeOf(Type type, Type supertype) {
+    if (type.equals(supertype)) return true;
+    return subtypes.getUnchecked(new TypePair(type, supertype));
+  }
+
+  /** Returns true if a value of {@code subtype} can be assigned to {@code type}. */
+  public boolean isAssignableFrom(TypeToken<?> type, TypeToken<?> subtype) {
+    return isSubtypeOf(subtype.getType(), type.getType());
+  }
+
+  /** Returns true if a value of {@code subtype} can be assigned to {@code type}. */
+  public boolean isAssignableFrom(Type type, Type subtype) {
+    return isSubtypeOf(subtype, type);
+  }
+
+  /** Returns the statistics of remembered answers. */
+  public CacheStats stats() {
+    return subtypes.stats();
+  }
+
+  private boolean computeIsSubtype(Type type, Type supertype) {
+    Class<?> raw = rawClass(type);
+    Class<?> superRaw = rawClass(supertype);
+    if (raw != null && superRaw != null) {
+      if (!rawSupertypes.getUnchecked(raw).contains(superRaw)) return false;
+      // Every parameterization of a class is a subtype of its raw superclasses and interfaces.
+      if (supertype instanceof Class<?>) return true;
+    }
+    return TypeToken.of(supertype).isAssignableFrom(type);
+  }
+
+  /**
+   * Returns the raw class of {@code type} if it's a class or a parameterized type whose
+   * superclasses and interfaces are the same as the class hierarchy's. Returns null for
+   * primitives, arrays, wildcards etc., which are left to {@link TypeToken}.
+   */
+  private static Class<?> rawClass(Type type) {
+    Class<?> raw;
+    if (type instanceof Class<?>) {
+      raw = (Class<?>) type;
+    } else if (type instanceof ParameterizedType) {
+      raw = (Class<?>) ((ParameterizedType) type).getRawType();
+    } else {
+      return null;
+    }
+    return raw.isPrimitive() || raw.isArray() ? null : raw;
+  }
+
+  /** Returns {@code cls}, its superclasses and all interfaces it implements, and Object. */
+  private static ImmutableSet<Class<?>> collectRawSupertypes(Class<?> cls) {
+    Set<Class<?>> supertypes = new LinkedHashSet<Class<?>>();
+    Deque<Class<?>> pending = new ArrayDeque<Class<?>>();
+    pending.add(cls);
+    while (!pending.isEmpty()) {
+      Class<?> type = pending.remove();
+      if (!supertypes.add(type)) continue;
+      if (type.getSuperclass() != null) pending.add(type.getSuperclass());
+      for (Class<?> implemented : type.getInterfaces()) {
+        pending.add(implemented);
+      }
+    }
+    supertypes.add(Object.class);  // Interfaces don't have Object as their superclass.
+    return ImmutableSet.copyOf(supertypes);
+  }
+
+  private static final class TypePair {
+    final Type type;
+    final Type supertype;
+    private final int hashCode;
+
+    TypePair(Type type, Type supertype) {
+      this.type = checkNotNull(type);
+      this.supertype = checkNotNull(supertype);
+      this.hashCode = 31 * type.hashCode() + supertype.hashCode();
+    }
+
+    @Override public boolean equals(Object obj) {
+      if (obj instanceof TypePair) {
+        TypePair that = (TypePair) obj;
+        return hashCode == that.hashCode
+            && type.equals(that.type)
+            && supertype.equals(that.supertype);
+      }
+      return false;
+    }
+
+    @Override public int hashCode() {
+      return hashCode;
+    }
+  }
+}
@@ -0,0 +1,33 @@
+package org.jparsec.java;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a {@code static final String} constant holding a type expression in the syntax
+ * {@link TypeParser} accepts, so that the {@code jparsec-g-processor} annotation processor checks
+ * it during compilation and precompiles it.
+ *
+ * <p>For the annotated constants of a class {@code Foo}, the processor generates a class
+ * {@code Foo_TypeLiterals} in the same package, with a {@code TypeToken<?>} constant of the same
+ * name for each of them. The constants are built through the {@link Types} factories, so they're
+ * available without parsing the expressions or searching the class loader at run time:
+ *
+ * <pre>   class Handlers {
+ *     {@literal @}TypeLiteral static final String STRING_LIST = "java.util.List&lt;String&gt;";
+ *   }
+ *
+ *   TypeToken&lt;?&gt; type = Handlers_TypeLiterals.STRING_LIST;</pre>
+ *
+ * <p>A type expression that wouldn't parse, or names a class that doesn't exist, fails the
+ * compilation. Names are resolved the same way as by a default {@link TypeParser}: names without
+ * a dot are in {@code java.lang}, and member classes are named by their binary names, such as
+ * {@code java.util.Map$Entry}.
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.FIELD)
+public @interface TypeLiteral {}
@@ -0,0 +1,245 @@
+package org.jparsec.java;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Reads manifests of type expressions, one expression per line.
+ *
+ * <p>Manifests are read and parsed lazily, one line at a time, as the returned stream is
+ * consumed. Blank lines are skipped. A line that fails to parse doesn't stop the stream,
+ * it's reported through {@link ParseResult#getError}.
+ *
+ * <p>The returned streams should be closed after use, which closes the underlying source.
+ */
+public final class TypeManifest {
+
+  /** Size of the regions of a manifest file mapped in memory at a time. */
+  private static final int WINDOW_SIZE = 1 << 28;
+
+  /** A type expression read from a manifest. */
+  public static final class Entry {
+    private final long lineNumber;
+    private final ParseResult result;
+
+    Entry(long lineNumber, ParseResult result) {
+      this.lineNumber = lineNumber;
+      this.result = result;
+    }
+
+    /** Returns the 1-based line number of this entry in the manifest. */
+    public long getLineNumber() {
+      return lineNumber;
+    }
+
+    /** Returns the result of parsing this entry. */
+    public ParseResult getResult() {
+      return result;
+    }
+
+    @Override public String toString() {
+      return lineNumber + ": " + result;
+    }
+  }
+
+  /** Reads and parses the lines from {@code reader} using {@code parser}. */
+  public static Stream<Entry> read(TypeParser parser, Reader reader) {
+    checkNotNull(parser);
+    BufferedReader lines = reader instanceof BufferedReader
+        ? (BufferedReader) reader
+        : new BufferedReader(reader);
+    Iterator<Entry> entries = new Iterator<Entry>() {
+      private long lineNumber = 0;
+      private Entry next;
+
+      @Override public boolean hasNext() {
+        if (next != null) return true;
+        for (;;) {
+          String line = readLine(lines);
+          if (line == null) return false;
+          lineNumber++;
+          if (!isBlank(line)) {
+            next = new Entry(lineNumber, ParseResult.parse(parser, line));
+            return true;
+          }
+        }
+      }
+
+      @Override public Entry next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        Entry entry = next;
+        next = null;
+        return entry;
+      }
+    };
+    return stream(entries, lines);
+  }
+
+  /** Reads and parses the lines decoded with {@code charset} from {@code channel}. */
+  public static Stream<Entry> read(
+      TypeParser parser, ReadableByteChannel channel, Charset charset) {
+    return read(parser, Channels.newReader(channel, charset.newDecoder(), -1));
+  }
+
+  /**
+   * Maps the UTF-8 encoded manifest {@code file} in memory, and parses its lines using
+   * {@code parser}.
+   *
+   * <p>The file is mapped in windows of limited size, so files larger than 2GB can be read.
+   * ASCII lines (including all lines with only ASCII class names) are parsed straight from the
+   * mapped bytes, without being decoded first. Each line is copied out of the mapped window once,
+   * to the string kept by its {@link ParseResult}.
+   */
+  public static Stream<Entry> map(TypeParser parser, Path file) throws IOException {
+    return map(parser, file, WINDOW_SIZE);
+  }
+
+  @VisibleForTesting static Stream<Entry> map(TypeParser parser, Path file, int windowSize)
+      throws IOException {
+    checkNotNull(parser);
+    checkArgument(windowSize > 0, "windowSize (%s) must be positive", windowSize);
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+    return stream(new MappedLines(parser, channel, windowSize), channel);
+  }
+
+  /** Iterates over the lines of a file channel, mapping one window of the file at a time. */
+  private static final class MappedLines implements Iterator<Entry> {
+    private final TypeParser parser;
+    private final FileChannel channel;
+    private final int windowSize;
+    private final long fileSize;
+    private long windowStart = 0;
+    private MappedByteBuffer window;
+    private int position = 0;
+    private long lineNumber = 0;
+    private Entry next;
+
+    /** View of the current ASCII line, reused for every line. */
+    private final ByteCharSequence asciiLine = new ByteCharSequence();
+
+    MappedLines(TypeParser parser, FileChannel channel, int windowSize) throws IOException {
+      this.parser = parser;
+      this.channel = channel;
+      this.windowSize = windowSize;
+      this.fileSize = channel.size();
+    }
+
+    @Override public boolean hasNext() {
+      while (next == null) {
+        if (window == null || position == window.limit()) {
+          if (windowStart + position >= fileSize) return false;
+          map(windowStart + position);
+        }
+        int lineStart = position;
+        boolean ascii = true;
+        int i = lineStart;
+        for (; i < window.limit(); i++) {
+          byte b = window.get(i);
+          if (b == '\n') break;
+          if (b < 0) ascii = false;
+        }
+        if (i == window.limit() && windowStart + i < fileSize) {
+          // The line continues in the next window.
+          if (lineStart == 0) {
+            throw new UncheckedIOException(new IOException(
+                "Line " + (lineNumber + 1) + " is longer than " + windowSize + " bytes"));
+          }
+          map(windowStart + lineStart);
+          continue;
+        }
+        position = i < window.limit() ? i + 1 : i;
+        lineNumber++;
+        int lineEnd = i > lineStart && window.get(i - 1) == '\r' ? i - 1 : i;
+        CharSequence line = ascii
+            ? asciiLine.reset(window, lineStart, lineEnd - lineStart)
+            : decode(lineStart, lineEnd);
+        if (!isBlank(line)) {
+          next = new Entry(lineNumber, ParseResult.parse(parser, line));
+        }
+      }
+      return true;
+    }
+
+    @Override public Entry next() {
+      if (!hasNext()) throw new NoSuchElementException();
+      Entry entry = next;
+      next = null;
+      return entry;
+    }
+
+    private void map(long start) {
+      try {
+        window = channel.map(
+            FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, fileSize - start));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      windowStart = start;
+      position = 0;
+    }
+
+    private String decode(int from, int to) {
+      byte[] bytes = new byte[to - from];
+      for (int i = 0; i < bytes.length; i++) {
+        bytes[i] = window.get(from + i);
+      }
+      return new String(bytes, UTF_8);
+    }
+  }
+
+  private static Stream<Entry> stream(Iterator<Entry> entries, Closeable source) {
+    return StreamSupport.stream(
+            Spliterators.spliteratorUnknownSize(
+                entries, Spliterator.ORDERED | Spliterator.NONNULL),
+            false)
+        .onClose(() -> close(source));
+  }
+
+  private static String readLine(BufferedReader reader) {
+    try {
+      return reader.readLine();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static void close(Closeable source) {
+    try {
+      source.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static boolean isBlank(CharSequence line) {
+    for (int i = 0; i < line.length(); i++) {
+      if (!Character.isWhitespace(line.charAt(i))) return false;
+    }
+    return true;
+  }
+
+  private TypeManifest() {}
+}
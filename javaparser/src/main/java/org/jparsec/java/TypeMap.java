@@ -0,0 +1,136 @@
+package org.jparsec.java;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.reflect.TypeToken;
+
+/**
+ * A map keyed by types, typically those returned by a {@link TypeParser}, that can look up the
+ * value of the most specific registered supertype of a type. For example, with values registered
+ * for {@code Collection<?>} and {@code Collection<? extends Number>}, {@link #get} of
+ * {@code List<Integer>} returns the latter.
+ *
+ * <p>Lookups are remembered per queried type, so that after warm-up they cost about a hash map
+ * lookup. Registering or removing a value forgets what was remembered. The map is meant to be
+ * mostly read: it's safe to use concurrently, but each modification copies the entries.
+ *
+ * @param <V> the type of the values
+ */
+public final class TypeMap<V> {
+
+  /** Maximum number of remembered lookups. */
+  private static final long MAXIMUM_RESOLVED_TYPES = 10000;
+
+  private final TypeIndex index;
+  private volatile Snapshot<V> snapshot = new Snapshot<V>(ImmutableMap.<Type, V>of());
+
+  /** Creates an empty map. */
+  public TypeMap() {
+    this(new TypeIndex());
+  }
+
+  /** Creates an empty map answering subtype queries through {@code index}. */
+  public TypeMap(TypeIndex index) {
+    this.index = checkNotNull(index);
+  }
+
+  /** Registers {@code value} for {@code type}, and returns the value it replaces, if any. */
+  public synchronized V put(TypeToken<?> type, V value) {
+    checkNotNull(value);
+    Map<Type, V> entries = new LinkedHashMap<Type, V>(snapshot.entries);
+    V old = entries.put(type.getType(), value);
+    snapshot = new Snapshot<V>(ImmutableMap.copyOf(entries));
+    return old;
+  }
+
+  /** Removes the value registered for {@code type}, and returns it, if any. */
+  public synchronized V remove(TypeToken<?> type) {
+    if (!snapshot.entries.containsKey(type.getType())) return null;
+    Map<Type, V> entries = new LinkedHashMap<Type, V>(snapshot.entries);
+    V old = entries.remove(type.getType());
+    snapshot = new Snapshot<V>(ImmutableMap.copyOf(entries));
+    return old;
+  }
+
+  /** Returns the value registered for exactly {@code type}, or null if there isn't one. */
+  public V getExact(TypeToken<?> type) {
+    return snapshot.entries.get(type.getType());
+  }
+
+  /**
+   * Returns the value registered for {@code type}, or else for its most specific registered
+   * supertype, or null if no registered type is a supertype of {@code type}.
+   *
+   * @throws IllegalArgumentException if several registered supertypes match, none of which is
+   *         a subtype of all the others
+   */
+  public V get(TypeToken<?> type) {
+    Snapshot<V> current = snapshot;
+    Optional<V> resolved = current.resolved.getIfPresent(type.getType());
+    if (resolved == null) {
+      resolved = Optional.ofNullable(resolve(current.entries, type.getType()));
+      current.resolved.put(type.getType(), resolved);
+    }
+    return resolved.orElse(null);
+  }
+
+  /** Returns the number of registered types. */
+  public int size() {
+    return snapshot.entries.size();
+  }
+
+  /** Returns an immutable view of the registered types and values. */
+  public ImmutableMap<Type, V> asMap() {
+    return snapshot.entries;
+  }
+
+  @Override public String toString() {
+    return snapshot.entries.toString();
+  }
+
+  private V resolve(ImmutableMap<Type, V> entries, Type type) {
+    V exact = entries.get(type);
+    if (exact != null) return exact;
+    List<Type> candidates = new ArrayList<Type>();
+    for (Type registered : entries.keySet()) {
+      if (index.isSubtypeOf(type, registered)) {
+        candidates.add(registered);
+      }
+    }
+    Type mostSpecific = null;
+    for (Type candidate : candidates) {
+      if (mostSpecific == null || index.isSubtypeOf(candidate, mostSpecific)) {
+        mostSpecific = candidate;
+      }
+    }
+    if (mostSpecific == null) return null;
+    for (Type candidate : candidates) {
+      checkArgument(index.isSubtypeOf(mostSpecific, candidate),
+          "%s matches both %s and %s, neither of which is more specific",
+          type.getTypeName(), mostSpecific.getTypeName(), candidate.getTypeName());
+    }
+    return entries.get(mostSpecific);
+  }
+
+  /** The registered entries, and the lookups resolved against them. */
+  private static final class Snapshot<V> {
+    final ImmutableMap<Type, V> entries;
+    final Cache<Type, Optional<V>> resolved =
+        CacheBuilder.newBuilder().maximumSize(MAXIMUM_RESOLVED_TYPES).build();
+
+    Snapshot(ImmutableMap<Type, V> entries) {
+      this.entries = entries;
+    }
+  }
+}
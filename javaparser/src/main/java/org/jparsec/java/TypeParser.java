@@ -1,29 +1,61 @@
 package org.jparsec.java;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+import static com.google.common.base.Preconditions.checkState;
 
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
 import org.codehaus.jparsec.Parser;
 import org.codehaus.jparsec.Parsers;
 import org.codehaus.jparsec.Scanners;
 import org.codehaus.jparsec.Terminals;
+import org.codehaus.jparsec.error.Location;
+import org.codehaus.jparsec.error.ParseErrorDetails;
 import org.codehaus.jparsec.error.ParserException;
+import org.codehaus.jparsec.functors.Map;
 import org.codehaus.jparsec.pattern.Patterns;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.google.common.reflect.TypeToken;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 /**
  * A parser for any valid reified Java type expression.
  * That is, type variables aren't allowed in the parsed string.
  *
- * <p>Currently, no type bounds checking is performed, which means you could potentially create
- * insane types such as {@code Enum<String>}.
+ * <p>By default, no type bounds checking is performed, which means you could potentially create
+ * insane types such as {@code Enum<String>}. Use {@link #withBoundsChecking} to reject them.
  */
-// TODO: Perform type bounds checking once we find a good type inference library to use.
 public final class TypeParser {
 
   private static final Parser<?> WORD = Patterns.isChar(Character::isJavaIdentifierStart)
@@ -40,15 +72,49 @@ public final class TypeParser {
       .sepBy1(TERMS.token("."))
       .map(Joiner.on('.')::join);
 
-  private static final ImmutableMap<String, Class<?>> PRIMITIVE_TYPES = mapByName(
-      void.class, boolean.class, byte.class, short.class, int.class, long.class,
+  static final ImmutableMap<String, Class<?>> PRIMITIVE_TYPES = mapByName(
+      void.class, boolean.class, byte.class, short.class, char.class, int.class, long.class,
       float.class, double.class);
 
   private static ImmutableMap<String, Class<?>> PRIMITIVE_ARRAY_TYPES = mapByName(
-      boolean[].class, byte[].class, short[].class, int[].class,
+      boolean[].class, byte[].class, short[].class, char[].class, int[].class,
       long[].class, float[].class, double[].class);
 
-  private final ClassLoader classloader;
+  /** The {@code ?} wildcard. Interned, and it stays the canonical instance for good. */
+  static final WildcardType UNBOUNDED_WILDCARD =
+      (WildcardType) Types.intern(Types.subtypeOf(Object.class));
+
+  private static final Splitter MEMBER_NAME_SPLITTER = Splitter.on('$');
+
+  private static final Interner<TypeToken<?>> TOKENS = Interners.newWeakInterner();
+
+  /** Minimum number of strings parsed by each task of {@link #parseAll}. */
+  private static final int MIN_BATCH_SIZE = 64;
+
+  private static final CacheStats EMPTY_STATS = new CacheStats(0, 0, 0, 0, 0, 0);
+
+  private final ClassResolver classes;
+  private final TypeFactory<Type> resolvedTypes = new ResolvedTypes();
+  private final TypeFactory<SymbolicType> symbolicTypes = new SymbolicTypes();
+  private final Parser<Type> parser;
+
+  /** The grammar building {@link SymbolicType}s, only built if {@link #parseSymbolic} is used. */
+  private final Supplier<Parser<SymbolicType>> symbolicParser;
+
+  /** Parse results by input string, or null if caching isn't enabled. */
+  private final LoadingCache<String, TypeToken<?>> cache;
+  private final long maximumCacheSize;
+
+  /** Whether types are interned through {@link Types#intern} as they are built. */
+  private final boolean interning;
+
+  private final TypeConstants constants;
+
+  /** Checks type arguments against their bounds, or null if bounds checking isn't enabled. */
+  private final BoundsChecker bounds;
+
+  /** Resolves simple class names, or null if names without a dot default to java.lang. */
+  private final Imports imports;
 
   public TypeParser() {
     this(TypeParser.class.getClassLoader());
@@ -56,32 +122,536 @@ public final class TypeParser {
 
   /** Create a type parser with {@code classloader} used to load classes. */
   public TypeParser(ClassLoader classloader) {
-    this.classloader = checkNotNull(classloader);
+    this(new ClassResolver(classloader, null), -1, false, TypeConstants.jdk(), null, null);
+  }
+
+  private TypeParser(
+      ClassResolver classes, long maximumCacheSize, boolean interning, TypeConstants constants,
+      BoundsChecker bounds, Imports imports) {
+    this.classes = classes;
+    this.interning = interning;
+    this.constants = checkNotNull(constants);
+    this.bounds = bounds;
+    this.imports = imports;
+    this.parser = grammar(resolvedTypes).from(TERMS.tokenizer(), Scanners.WHITESPACES.optional());
+    this.symbolicParser = Suppliers.memoize(() -> grammar(symbolicTypes)
+        .from(TERMS.tokenizer(), Scanners.WHITESPACES.optional()));
+    this.maximumCacheSize = maximumCacheSize;
+    this.cache = maximumCacheSize < 0 ? null : CacheBuilder.newBuilder()
+        .maximumSize(maximumCacheSize)
+        .recordStats()
+        .build(CacheLoader.from(this::parseUncached));
+  }
+
+  /**
+   * Returns a parser that loads classes the same way as this parser, and caches up to
+   * {@code maximumSize} parse results. When the cache is full, the least recently used entries
+   * are evicted. Concurrent calls parsing the same string wait for a single parse.
+   *
+   * <p>Failed parses aren't cached. The cached results can be saved and loaded in a later process
+   * through {@link TypeSnapshot}.
+   */
+  public TypeParser withCache(long maximumSize) {
+    checkArgument(maximumSize >= 0, "maximumSize (%s) must not be negative", maximumSize);
+    return new TypeParser(classes, maximumSize, interning, constants, bounds, imports);
+  }
+
+  /**
+   * Returns a parser that remembers up to {@code maximumSize} class names that failed to load,
+   * so that parsing them again fails without searching the class loader.
+   *
+   * <p>Only use it if no class is going to be defined under a remembered name later on,
+   * or use {@link #withNegativeCache(long, long, TimeUnit)} to forget the names after a while.
+   */
+  public TypeParser withNegativeCache(long maximumSize) {
+    checkArgument(maximumSize >= 0, "maximumSize (%s) must not be negative", maximumSize);
+    return withMisses(CacheBuilder.newBuilder().maximumSize(maximumSize).build());
+  }
+
+  /**
+   * Returns a parser that remembers up to {@code maximumSize} class names that failed to load,
+   * each for {@code duration}, so that parsing them again fails without searching the class
+   * loader.
+   */
+  public TypeParser withNegativeCache(long maximumSize, long duration, TimeUnit unit) {
+    checkArgument(maximumSize >= 0, "maximumSize (%s) must not be negative", maximumSize);
+    return withMisses(CacheBuilder.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(duration, unit)
+        .build());
+  }
+
+  /** Returns a parser whose class resolver, including that of the imports, uses {@code misses}. */
+  private TypeParser withMisses(Cache<String, UnresolvedClassException> misses) {
+    ClassResolver resolver = classes.withMisses(misses);
+    return new TypeParser(resolver, maximumCacheSize, interning, constants, bounds,
+        imports == null ? null : imports.withClasses(resolver));
+  }
+
+  /**
+   * Returns a parser that interns the parsed types (see {@link Types#intern}) and the returned
+   * {@link TypeToken}s, so that parsing equal types returns the same instance.
+   */
+  public TypeParser withInterning() {
+    return new TypeParser(classes, maximumCacheSize, true, constants, bounds, imports);
+  }
+
+  /**
+   * Returns a parser that looks up {@code constants} before parsing, instead of the default
+   * {@link TypeConstants#jdk} table. Use {@link TypeConstants#none} to disable the lookup.
+   */
+  public TypeParser withConstants(TypeConstants constants) {
+    return new TypeParser(classes, maximumCacheSize, interning, constants, bounds, imports);
+  }
+
+  /**
+   * Returns a parser that checks each type argument against the bounds declared by the type
+   * parameter, so that types such as {@code Enum<String>} fail to parse. Of wildcard type
+   * arguments, only the bound of {@code ? extends} is checked, for whether a class could be
+   * within both bounds, as in {@code Enum<? extends String>}, which fails.
+   *
+   * <p>The outcome is remembered per type argument of each class, and shared by the parsers
+   * using the same class loader, so that checking arguments seen before costs little.
+   */
+  public TypeParser withBoundsChecking() {
+    return new TypeParser(classes, maximumCacheSize, interning, constants,
+        new BoundsChecker(classes), imports);
+  }
+
+  /**
+   * Returns a parser that resolves simple class names through {@code imports}, the same way as a
+   * Java source file with these import declarations. Each import is either a class name, such as
+   * {@code java.util.Map} or {@code java.util.Map.Entry}, or a package name followed by
+   * {@code .*}, such as {@code com.acme.*}. Classes in {@code java.lang} are still imported
+   * implicitly, and qualified names starting with an imported class name refer to its member
+   * classes, as in {@code Map.Entry}.
+   *
+   * <p>Imported classes are resolved once, here, into an index by simple name. Names imported on
+   * demand are looked up in each package the first time they're used, and then remembered.
+   *
+   * @throws IllegalArgumentException if an imported class can't be loaded, or two imported
+   *         classes have the same simple name
+   */
+  public TypeParser withImports(String... imports) {
+    return withImports(Arrays.asList(imports));
+  }
+
+  /** Same as {@link #withImports(String...)}. */
+  public TypeParser withImports(Iterable<String> imports) {
+    return new TypeParser(classes, maximumCacheSize, interning, constants, bounds,
+        Imports.of(classes, imports, this.imports == null ? null : this.imports.index()));
+  }
+
+  /**
+   * Returns a parser that looks up names imported on demand, including those in
+   * {@code java.lang}, in {@code index} before searching the class loader. A package that has
+   * classes in the index is only searched for the names the index has in it, so that a name that
+   * isn't there fails without probing each package.
+   *
+   * <p>The index must cover the whole classpath of the parser's class loader for the packages it
+   * has, or classes defined elsewhere in those packages won't be found.
+   */
+  public TypeParser withClassIndex(ClassIndex index) {
+    checkNotNull(index);
+    Imports withIndex = imports == null
+        ? Imports.of(classes, ImmutableList.<String>of(), index)
+        : imports.withIndex(index);
+    return new TypeParser(classes, maximumCacheSize, interning, constants, bounds, withIndex);
+  }
+
+  /**
+   * Returns the hit, miss and eviction statistics of the parse result cache.
+   * All counts are zero if the cache isn't enabled through {@link #withCache}.
+   */
+  public CacheStats cacheStats() {
+    return cache == null ? EMPTY_STATS : cache.stats();
   }
 
   /** Parses {@code string} to a {@link TypeToken}. */
   public TypeToken<?> parse(String string) throws ParserException {
-    Parser.Reference<Type> ref = Parser.newReference();
-    Parser<Type> type = Parsers.or(
-        wildcardType(ref.lazy()), parameterizedType(ref.lazy()), arrayClass(), rawType());
-    ref.set(type.postfix(TERMS.phrase("[", "]").retn(Types::newArrayType)));
-    return TypeToken.of(
-        ref.get().from(TERMS.tokenizer(), Scanners.WHITESPACES.optional()).parse(string));
-  }
-
-  private Parser<Class<?>> rawType() {
-    return FQN.map(name -> {
-        Class<?> primitiveType = PRIMITIVE_TYPES.get(name);
-        if (primitiveType != null) return primitiveType;
-        return loadClass(name.indexOf('.') < 0 ? "java.lang." + name : name);
-      });
+    // With imports, a simple name like "String" in a constant's string may mean another class.
+    TypeToken<?> constant =
+        imports == null || imports.isImplicitOnly() ? constants.get(string) : null;
+    if (constant != null) return constant;
+    if (cache == null) {
+      return parseUncached(string);
+    }
+    try {
+      return cache.getUnchecked(string);
+    } catch (UncheckedExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  /**
+   * Parses the characters of {@code source} from index {@code begin} (inclusive) to {@code end}
+   * (exclusive) to a {@link TypeToken}, without copying them out first.
+   * Error locations are reported relative to the beginning of {@code source}.
+   */
+  public TypeToken<?> parse(CharSequence source, int begin, int end) throws ParserException {
+    checkPositionIndexes(begin, end, source.length());
+    if (cache != null) {
+      try {
+        return parse(source.subSequence(begin, end).toString());
+      } catch (ParserException e) {
+        throw relocate(e, source, begin);
+      }
+    }
+    return parseUncached(source, begin, end);
+  }
+
+  /**
+   * Parses {@code length} characters of {@code chars} starting from {@code offset} to a
+   * {@link TypeToken}. Error locations are reported relative to the beginning of {@code chars}.
+   */
+  public TypeToken<?> parse(char[] chars, int offset, int length) throws ParserException {
+    return parse(CharBuffer.wrap(chars), offset, offset + length);
+  }
+
+  /**
+   * Parses a JVM field descriptor such as {@code [Ljava/lang/String;}, or a generic field
+   * signature such as {@code Ljava/util/Map<Ljava/lang/String;Ljava/util/List<[I>;>;}, as found
+   * in class files.
+   *
+   * @throws IllegalArgumentException if {@code signature} is malformed, or has type variables
+   * @throws UnresolvedClassException if a class can't be loaded
+   */
+  public TypeToken<?> parseSignature(String signature) {
+    return toTypeToken(SignatureParser.parse(this, signature));
+  }
+
+  /**
+   * Parses all of {@code strings} in parallel using the {@link ForkJoinPool#commonPool}.
+   * Equivalent to {@code parseAll(strings, ForkJoinPool.commonPool())}.
+   */
+  public List<ParseResult> parseAll(Collection<String> strings) {
+    return parseAll(strings, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Parses all of {@code strings} in parallel using {@code executor}, and returns the results
+   * in the same order. Duplicate strings are only parsed once.
+   *
+   * <p>Parse errors don't fail the call, they are reported through {@link ParseResult#getError}.
+   */
+  public List<ParseResult> parseAll(Collection<String> strings, Executor executor) {
+    List<String> inputs = ImmutableList.copyOf(strings);
+    HashMap<String, Integer> slots = new HashMap<String, Integer>();
+    int[] inputSlots = new int[inputs.size()];
+    List<String> unique = new ArrayList<String>();
+    for (int i = 0; i < inputSlots.length; i++) {
+      String input = inputs.get(i);
+      Integer slot = slots.get(input);
+      if (slot == null) {
+        slot = unique.size();
+        slots.put(input, slot);
+        unique.add(input);
+      }
+      inputSlots[i] = slot;
+    }
+    ParseResult[] uniqueResults = parseUnique(unique, executor);
+    ParseResult[] results = new ParseResult[inputSlots.length];
+    for (int i = 0; i < results.length; i++) {
+      results[i] = uniqueResults[inputSlots[i]];
+    }
+    return Arrays.asList(results);
+  }
+
+  /** Parses all of {@code strings} in parallel using the {@link ForkJoinPool#commonPool}. */
+  public List<ParseResult> parseAll(String... strings) {
+    return parseAll(Arrays.asList(strings));
+  }
+
+  /** Parses all of {@code strings} in parallel using {@code executor}. */
+  public List<ParseResult> parseAll(String[] strings, Executor executor) {
+    return parseAll(Arrays.asList(strings), executor);
+  }
+
+  private ParseResult[] parseUnique(List<String> strings, Executor executor) {
+    ParseResult[] results = new ParseResult[strings.size()];
+    int batches = Math.min(
+        Runtime.getRuntime().availableProcessors() * 4,
+        (results.length + MIN_BATCH_SIZE - 1) / MIN_BATCH_SIZE);
+    if (batches <= 1) {
+      parseBatch(strings, results, 0, results.length);
+      return results;
+    }
+    CompletableFuture<?>[] futures = new CompletableFuture<?>[batches];
+    for (int i = 0; i < batches; i++) {
+      int from = (int) ((long) results.length * i / batches);
+      int to = (int) ((long) results.length * (i + 1) / batches);
+      futures[i] = CompletableFuture.runAsync(
+          () -> parseBatch(strings, results, from, to), executor);
+    }
+    try {
+      CompletableFuture.allOf(futures).join();
+    } catch (CompletionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+    return results;
+  }
+
+  private void parseBatch(List<String> strings, ParseResult[] results, int from, int to) {
+    for (int i = from; i < to; i++) {
+      results[i] = ParseResult.parse(this, strings.get(i));
+    }
+  }
+
+  private TypeToken<?> parseUncached(String string) {
+    return parseUncached(string, 0, string.length());
+  }
+
+  private TypeToken<?> parseUncached(CharSequence source, int begin, int end) {
+    // Most input is accepted by the fast path. Otherwise the grammar reports the error.
+    Type type;
+    try {
+      type = FastTypeParser.parse(resolvedTypes, source, begin, end);
+    } catch (FastTypeParser.TypeException e) {
+      throw typeError(e, source);
+    }
+    if (type == null) type = parseWithGrammar(source, begin, end);
+    return toTypeToken(type);
+  }
+
+  /**
+   * Parses {@code string} to a {@link SymbolicType}, which names classes without loading them,
+   * until it's {@linkplain SymbolicType#resolve resolved} through this parser.
+   *
+   * <p>Names are resolved to binary names the same way as by {@link #parse}, except that classes
+   * are assumed to exist. Names imported on demand through {@link #withImports} are still looked
+   * up by loading classes, since the package of such a name can't be told otherwise.
+   *
+   * <p>Parse results aren't cached, and {@link #withConstants constants} and
+   * {@link #withBoundsChecking bounds checking} only apply to the resolved types.
+   */
+  public SymbolicType parseSymbolic(String string) throws ParserException {
+    SymbolicType type;
+    try {
+      type = FastTypeParser.parse(symbolicTypes, string, 0, string.length());
+    } catch (FastTypeParser.TypeException e) {
+      throw typeError(e, string);
+    }
+    return type != null ? type : symbolicParser.get().parse(string);
+  }
+
+  /** Returns true if parse results are cached through {@link #withCache}. */
+  boolean isCaching() {
+    return cache != null;
+  }
+
+  /**
+   * Returns the parse result cache as a map by input string, for {@link TypeSnapshot} to save and
+   * to load into.
+   *
+   * @throws IllegalStateException if the cache isn't enabled through {@link #withCache}
+   */
+  ConcurrentMap<String, TypeToken<?>> cachedResults() {
+    checkState(cache != null, "Parse results aren't cached; use withCache()");
+    return cache.asMap();
+  }
+
+  /** Returns the index set by {@link #withClassIndex}, or null if there's none. */
+  ClassIndex classIndex() {
+    return imports == null ? null : imports.index();
+  }
+
+  /**
+   * Returns a hash of the imports that names are resolved through, which {@link TypeSnapshot}
+   * checks so that parse results aren't loaded into a parser resolving names another way.
+   */
+  long importsFingerprint() {
+    return imports == null ? Imports.IMPLICIT_FINGERPRINT : imports.fingerprint();
+  }
+
+  /** Returns the constant equal to {@code type}, or else its (interned if enabled) type token. */
+  TypeToken<?> toTypeToken(Type type) {
+    if (!(type instanceof Class<?>)) {
+      TypeToken<?> constant = constants.get(type);
+      if (constant != null) return constant;
+    }
+    TypeToken<?> token = TypeToken.of(type);
+    return interning ? TOKENS.intern(token) : token;
+  }
+
+  @VisibleForTesting Type parseWithGrammar(String string) {
+    return parser.parse(string);
+  }
+
+  private Type parseWithGrammar(CharSequence source, int begin, int end) {
+    if (begin == 0 && end == source.length()) {
+      return parser.parse(source);
+    }
+    try {
+      return parser.parse(CharBuffer.wrap(source, begin, end));
+    } catch (ParserException e) {
+      throw relocate(e, source, begin);
+    }
+  }
+
+  /** Moves the location of {@code e} from relative to {@code begin} to relative to 0. */
+  private static ParserException relocate(ParserException e, CharSequence source, int begin) {
+    Location location = e.getLocation();
+    if (location == null) return e;
+    Location start = locate(source, begin);
+    Location relocated = new Location(
+        location.line + start.line - 1,
+        location.line == 1 ? location.column + start.column - 1 : location.column);
+    return new InputException(e.getCause(), e.getErrorDetails(), e.getModuleName(), relocated);
+  }
+
+  /** Reports a failure of the fast path the same way as the grammar reports it. */
+  private static ParserException typeError(FastTypeParser.TypeException e, CharSequence source) {
+    return new InputException(e.getCause(), null, null, locate(source, e.index));
+  }
+
+  /**
+   * A {@link ParserException} that doesn't fill in its stack trace, like
+   * {@link UnresolvedClassException}, since it's about the input rather than the code parsing it.
+   */
+  private static final class InputException extends ParserException {
+    private static final long serialVersionUID = 1L;
+
+    InputException(
+        Throwable cause, ParseErrorDetails details, String moduleName, Location location) {
+      super(cause, details, moduleName, location);
+    }
+
+    @Override public synchronized Throwable fillInStackTrace() {
+      return this;
+    }
+  }
+
+  /** Returns the line and column of {@code index} in {@code source}. */
+  private static Location locate(CharSequence source, int index) {
+    int line = 1;
+    int column = 1;
+    for (int i = 0; i < index; i++) {
+      if (source.charAt(i) == '\n') {
+        line++;
+        column = 1;
+      } else {
+        column++;
+      }
+    }
+    return new Location(line, column);
+  }
+
+  /** Resolves {@code name} as written in a type expression to a primitive type or a class. */
+  Class<?> resolveRawType(String name) {
+    Class<?> primitiveType = PRIMITIVE_TYPES.get(name);
+    if (primitiveType != null) return primitiveType;
+    if (imports != null) return imports.resolve(name);
+    return classes.load(name.indexOf('.') < 0 ? "java.lang." + name : name);
+  }
+
+  /** Resolves {@code name} as returned by {@link Class#getName} to a primitive type or a class. */
+  Class<?> resolveClass(String name) {
+    Class<?> primitiveType = PRIMITIVE_TYPES.get(name);
+    return primitiveType == null ? classes.load(name) : primitiveType;
+  }
+
+  /**
+   * Resolves an internal array class name such as {@code [Z} or {@code [Ljava.lang.String;},
+   * with the leading {@code [} already stripped as {@code name}.
+   * Returns null if {@code name} isn't in the internal format.
+   */
+  Class<?> resolveInternalArrayClass(String name) {
+    Class<?> primitiveArray = PRIMITIVE_ARRAY_TYPES.get("[" + name);
+    if (primitiveArray != null) return primitiveArray;
+    if (name.startsWith("L") && name.endsWith(";")) {
+      String className = name.substring(1, name.length() - 1);
+      return Types.newArrayType(classes.load(className));
+    }
+    return null;
+  }
+
+  ParameterizedType newParameterizedType(Class<?> raw, List<Type> typeArgs) {
+    return checkBounds(intern(Types.newParameterizedType(raw, typeArgs)));
+  }
+
+  /**
+   * Returns the member type {@code names} of {@code ownerType}, parameterized by
+   * {@code typeArgs}. {@code names} can be several {@code $} separated names such as
+   * {@code Inner$Deeper}, in which case each name but the last is a member type without type
+   * arguments, the same way as {@link Type#toString} writes them.
+   */
+  ParameterizedType newMemberType(ParameterizedType ownerType, String names, List<Type> typeArgs) {
+    List<String> nameList = MEMBER_NAME_SPLITTER.splitToList(names);
+    ParameterizedType type = ownerType;
+    for (int i = 0; i < nameList.size(); i++) {
+      Class<?> raw = classes.load(((Class<?>) type.getRawType()).getName() + '$' + nameList.get(i));
+      type = newMemberType(
+          type, raw, i == nameList.size() - 1 ? typeArgs : ImmutableList.<Type>of());
+    }
+    return type;
+  }
+
+  ParameterizedType newMemberType(ParameterizedType ownerType, Class<?> raw, List<Type> typeArgs) {
+    return checkBounds(intern(Types.newParameterizedTypeWithOwner(ownerType, raw, typeArgs)));
+  }
+
+  Type newArrayType(Type componentType) {
+    return intern(Types.newArrayType(componentType));
+  }
+
+  WildcardType subtypeOf(Type bound) {
+    return intern(Types.subtypeOf(bound));
+  }
+
+  WildcardType supertypeOf(Type bound) {
+    return intern(Types.supertypeOf(bound));
+  }
+
+  private ParameterizedType checkBounds(ParameterizedType type) {
+    if (bounds != null) bounds.check(type);
+    return type;
   }
 
-  private Parser<ParameterizedType> parameterizedType(Parser<Type> typeArg) {
-    return Parsers.sequence(
-        rawType(),
-        Parsers.between(TERMS.token("<"), typeArg.sepBy(TERMS.token(",")), TERMS.token(">")),
-        Types::newParameterizedType);
+  /**
+   * Interns {@code type} if interning is enabled. The components are interned already as they
+   * are built bottom-up, so interning only costs a lookup at each level.
+   */
+  @SuppressWarnings("unchecked")  // An interned type is equal, so is of the same Type subtype.
+  private <T extends Type> T intern(T type) {
+    return interning ? (T) Types.intern(type) : type;
+  }
+
+  /**
+   * Builds the type grammar, with the types built through {@code types}. Only the factories depend
+   * on this instance, so the grammar is built once per parser and reused by every {@link #parse}
+   * call.
+   */
+  private static <T> Parser<T> grammar(TypeFactory<T> types) {
+    Parser.Reference<T> ref = Parser.newReference();
+    Parser<T> rawType = FQN.map(types::rawType);
+    Parser<T> type = Parsers.or(
+        wildcardType(types, ref.lazy()), parameterizedType(types, rawType, ref.lazy()),
+        arrayClass(types), rawType);
+    ref.set(type.postfix(TERMS.phrase("[", "]").retn(arrayOf(types))));
+    return ref.get();
+  }
+
+  /**
+   * Parser for parameterized types, optionally followed by member types such as
+   * {@code .Inner<Integer>}, or {@code $Inner<Integer>} as written by {@link Type#toString}.
+   */
+  private static <T> Parser<T> parameterizedType(
+      TypeFactory<T> types, Parser<T> rawType, Parser<T> typeArg) {
+    Parser<List<T>> typeArgs =
+        Parsers.between(TERMS.token("<"), typeArg.sepBy(TERMS.token(",")), TERMS.token(">"));
+    Parser<String> memberName = Parsers.or(
+        TERMS.token(".").next(Terminals.identifier()),
+        Terminals.identifier().next(name -> name.startsWith("$")
+            ? Parsers.constant(name.substring(1))
+            : Parsers.<String>expect("member type")));
+    Parser<Map<T, T>> memberType = Parsers.sequence(
+        memberName, typeArgs.optional(ImmutableList.<T>of()),
+        (names, args) -> memberTypeOf(types, names, args));
+    return Parsers.sequence(rawType, typeArgs, types::parameterizedType).postfix(memberType);
+  }
+
+  private static <T> Map<T, T> memberTypeOf(TypeFactory<T> types, String names, List<T> typeArgs) {
+    return ownerType -> types.memberType(ownerType, names, typeArgs);
   }
 
   /**
@@ -90,35 +660,133 @@ public final class TypeParser {
    * <p>.java files can only use {@code int[]} format, not the internal format. But we have to
    * be able to parse from internal format because {@link Type#toString} can produce it.
    */
-  private Parser<Class<?>> arrayClass() {
-    Parser<Class<?>> arrayType = FQN.next(name -> {
+  private static <T> Parser<T> arrayClass(TypeFactory<T> types) {
+    Parser<T> arrayType = FQN.next(name -> {
         // Only invoked when we already see a "[" at the beginning.
-        Class<?> primitiveArray = PRIMITIVE_ARRAY_TYPES.get("[" + name);
-        if (primitiveArray != null) return Parsers.constant(primitiveArray);
-        if (name.startsWith("L") && name.endsWith(";")) {
-          String className = name.substring(1, name.length() - 1);
-          return Parsers.constant(Types.newArrayType(loadClass(className)));
-        } else {
-          return Parsers.expect("array class internal name");
-        }
+        T arrayClass = types.internalArrayClass(name);
+        if (arrayClass == null) return Parsers.<T>expect("array class internal name");
+        return Parsers.constant(arrayClass);
       });
     return TERMS.token("[") // must be an array internal format from this point on.
-        .next(arrayType.prefix(TERMS.token("[").retn(Types::newArrayType)));
+        .next(arrayType.prefix(TERMS.token("[").retn(arrayOf(types))));
   }
 
-  private Class<?> loadClass(String name) {
-    try {
-      return Class.forName(name, false, classloader);
-    } catch (ClassNotFoundException e) {
-      throw new RuntimeException(e);
+  private static <T> Parser<T> wildcardType(TypeFactory<T> types, Parser<T> boundType) {
+    return Parsers.or(
+        TERMS.phrase("?", "extends").next(boundType).map(types::subtypeOf),
+        TERMS.phrase("?", "super").next(boundType).map(types::supertypeOf),
+        TERMS.token("?").retn(types.unboundedWildcard()));
+  }
+
+  private static <T> Map<T, T> arrayOf(TypeFactory<T> types) {
+    return types::arrayOf;
+  }
+
+  TypeFactory<Type> resolvedTypes() {
+    return resolvedTypes;
+  }
+
+  /** Builds types through the factories of this parser, loading the classes they name. */
+  private final class ResolvedTypes implements TypeFactory<Type> {
+    @Override public Type rawType(String name) {
+      return resolveRawType(name);
+    }
+
+    @Override public Type internalArrayClass(String name) {
+      return resolveInternalArrayClass(name);
+    }
+
+    @Override public Type parameterizedType(Type rawType, List<Type> typeArgs) {
+      return newParameterizedType((Class<?>) rawType, typeArgs);
+    }
+
+    @Override public Type memberType(Type ownerType, String names, List<Type> typeArgs) {
+      return newMemberType((ParameterizedType) ownerType, names, typeArgs);
+    }
+
+    @Override public Type arrayOf(Type componentType) {
+      return newArrayType(componentType);
+    }
+
+    @Override public Type subtypeOf(Type bound) {
+      return TypeParser.this.subtypeOf(bound);
+    }
+
+    @Override public Type supertypeOf(Type bound) {
+      return TypeParser.this.supertypeOf(bound);
+    }
+
+    @Override public Type unboundedWildcard() {
+      return UNBOUNDED_WILDCARD;
     }
   }
 
-  private static Parser<Type> wildcardType(Parser<Type> boundType) {
-    return Parsers.or(
-        TERMS.phrase("?", "extends").next(boundType).map(Types::subtypeOf),
-        TERMS.phrase("?", "super").next(boundType).map(Types::supertypeOf),
-        TERMS.token("?").retn(Types.subtypeOf(Object.class)));
+  /** Builds {@link SymbolicType}s to be resolved through this parser, without loading classes. */
+  private final class SymbolicTypes implements TypeFactory<SymbolicType> {
+    private final SymbolicType.Wildcard unboundedWildcard =
+        new SymbolicType.Wildcard(TypeParser.this, null, null);
+
+    @Override public SymbolicType rawType(String name) {
+      String binaryName;
+      if (PRIMITIVE_TYPES.containsKey(name)) {
+        binaryName = name;
+      } else if (imports != null) {
+        binaryName = imports.resolveName(name);
+      } else {
+        binaryName = name.indexOf('.') < 0 ? "java.lang." + name : name;
+      }
+      return named(binaryName);
+    }
+
+    @Override public SymbolicType internalArrayClass(String name) {
+      Class<?> primitiveArray = PRIMITIVE_ARRAY_TYPES.get("[" + name);
+      if (primitiveArray != null) {
+        return arrayOf(named(primitiveArray.getComponentType().getName()));
+      }
+      if (name.startsWith("L") && name.endsWith(";")) {
+        return arrayOf(named(name.substring(1, name.length() - 1)));
+      }
+      return null;
+    }
+
+    @Override public SymbolicType parameterizedType(
+        SymbolicType rawType, List<SymbolicType> typeArgs) {
+      return new SymbolicType.Parameterized(
+          TypeParser.this, null, (SymbolicType.Named) rawType, typeArgs);
+    }
+
+    @Override public SymbolicType memberType(
+        SymbolicType ownerType, String names, List<SymbolicType> typeArgs) {
+      List<String> nameList = MEMBER_NAME_SPLITTER.splitToList(names);
+      SymbolicType.Parameterized type = (SymbolicType.Parameterized) ownerType;
+      for (int i = 0; i < nameList.size(); i++) {
+        SymbolicType.Named raw = named(type.getRawType().getName() + '$' + nameList.get(i));
+        type = new SymbolicType.Parameterized(TypeParser.this, type, raw,
+            i == nameList.size() - 1 ? typeArgs : ImmutableList.<SymbolicType>of());
+      }
+      return type;
+    }
+
+    @Override public SymbolicType arrayOf(SymbolicType componentType) {
+      return new SymbolicType.Array(TypeParser.this, componentType);
+    }
+
+    @Override public SymbolicType subtypeOf(SymbolicType bound) {
+      if (bound.equals(named(Object.class.getName()))) return unboundedWildcard;
+      return new SymbolicType.Wildcard(TypeParser.this, bound, null);
+    }
+
+    @Override public SymbolicType supertypeOf(SymbolicType bound) {
+      return new SymbolicType.Wildcard(TypeParser.this, null, bound);
+    }
+
+    @Override public SymbolicType unboundedWildcard() {
+      return unboundedWildcard;
+    }
+
+    private SymbolicType.Named named(String name) {
+      return new SymbolicType.Named(TypeParser.this, name);
+    }
   }
 
   private static ImmutableMap<String, Class<?>> mapByName(Class<?>... classes) {
@@ -0,0 +1,170 @@
+package org.jparsec.java;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.reflect.TypeToken;
+
+/**
+ * Saves the parse results cached by a {@link TypeParser} to a file, and loads them into the cache
+ * of a parser in a later process, so that the strings parsed before don't need parsing again.
+ *
+ * <p>A snapshot has the parsed strings, and the types in the {@link TypeCodec} encoding, with each
+ * class name and each distinct type written once for all of them. Loading a snapshot loads each
+ * class once by name and builds each distinct type once through the parser, without parsing.
+ *
+ * <p>A snapshot is tagged with a fingerprint of the classpath. By default, that's the fingerprint
+ * the parser's {@link TypeParser#withClassIndex ClassIndex} was opened with, if it has one, or
+ * else {@link ClassIndex#fingerprint} of the {@link ClassIndex#systemClasspath}. The latter
+ * lists and stats every class file in the classpath directories each time, which can cost more
+ * than the snapshot saves for a short-lived process with exploded classes; such callers should
+ * pass a cheaper fingerprint, such as a build number, to {@link #save(TypeParser, Path, long)}
+ * and {@link #load(TypeParser, Path, long)}. A snapshot taken with
+ * another fingerprint is ignored, since the classes it names may have changed. So is a snapshot
+ * taken by a parser with other {@link TypeParser#withImports imports}, since the same strings may
+ * name other classes, and one with types that don't fit their classes anymore.
+ */
+public final class TypeSnapshot {
+
+  private static final int MAGIC = 0x4a505453;  // "JPTS"
+  private static final int VERSION = 2;
+
+  /**
+   * Saves the parse results cached by {@code parser} to {@code file}, tagged with the fingerprint
+   * of its class index, or else of the {@link ClassIndex#systemClasspath}.
+   *
+   * @throws IllegalStateException if {@code parser} doesn't cache parse results
+   */
+  public static void save(TypeParser parser, Path file) throws IOException {
+    save(parser, file, defaultFingerprint(parser));
+  }
+
+  /**
+   * Saves the parse results cached by {@code parser} to {@code file}, tagged with
+   * {@code fingerprint}. The file is replaced atomically.
+   *
+   * @throws IllegalStateException if {@code parser} doesn't cache parse results
+   */
+  public static void save(TypeParser parser, Path file, long fingerprint) throws IOException {
+    Map<String, TypeToken<?>> results = ImmutableMap.copyOf(parser.cachedResults());
+    Path tmp = Files.createTempFile(
+        file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+    try {
+      try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(tmp))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(fingerprint);
+        out.writeLong(parser.importsFingerprint());
+        out.writeInt(results.size());
+        for (String string : results.keySet()) {
+          byte[] bytes = string.getBytes(UTF_8);
+          out.writeInt(bytes.length);
+          out.write(bytes);
+        }
+        out.write(TypeCodec.encodeAll(results.values()));
+      }
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  /**
+   * Loads the parse results saved to {@code file} into the cache of {@code parser}, if they were
+   * saved with the fingerprint of its class index, or else of the
+   * {@link ClassIndex#systemClasspath}.
+   *
+   * @return the number of loaded parse results, or 0 if {@code file} doesn't exist or is stale
+   * @throws IllegalStateException if {@code parser} doesn't cache parse results
+   */
+  public static int load(TypeParser parser, Path file) throws IOException {
+    return load(parser, file, defaultFingerprint(parser));
+  }
+
+  /**
+   * Returns the fingerprint {@code parser}'s class index was opened with, which was checked
+   * against its classpath then, or else computes that of the system classpath.
+   */
+  private static long defaultFingerprint(TypeParser parser) throws IOException {
+    ClassIndex index = parser.classIndex();
+    return index == null
+        ? ClassIndex.fingerprint(ClassIndex.systemClasspath())
+        : index.fingerprint();
+  }
+
+  /**
+   * Loads the parse results saved to {@code file} into the cache of {@code parser}, if they were
+   * saved with {@code fingerprint} and the same imports. Either all or none of the results are
+   * loaded.
+   *
+   * @return the number of loaded parse results, or 0 if {@code file} doesn't exist or is stale
+   * @throws IllegalStateException if {@code parser} doesn't cache parse results
+   * @throws IOException if {@code file} can't be read or isn't a valid snapshot
+   */
+  public static int load(TypeParser parser, Path file, long fingerprint) throws IOException {
+    Map<String, TypeToken<?>> cache = parser.cachedResults();
+    if (!Files.isRegularFile(file)) return 0;
+    ByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    Map<String, TypeToken<?>> results;
+    try {
+      if (buffer.getInt() != MAGIC) throw new IOException("Not a type snapshot: " + file);
+      if (buffer.getInt() != VERSION || buffer.getLong() != fingerprint
+          || buffer.getLong() != parser.importsFingerprint()) {
+        return 0;
+      }
+      results = read(parser, buffer);
+    } catch (UnresolvedClassException | TypeCodec.IncompatibleTypeException e) {
+      // The classpath changed in a way the fingerprint didn't tell.
+      return 0;
+    } catch (IllegalArgumentException | BufferUnderflowException e) {
+      throw new IOException("Invalid type snapshot: " + file, e);
+    }
+    cache.putAll(results);
+    return results.size();
+  }
+
+  private static Map<String, TypeToken<?>> read(TypeParser parser, ByteBuffer buffer) {
+    int count = buffer.getInt();
+    if (count < 0 || count > buffer.remaining()) {
+      throw new IllegalArgumentException("Invalid count: " + count);
+    }
+    List<String> strings = new ArrayList<String>(count);
+    for (int i = 0; i < count; i++) {
+      int length = buffer.getInt();
+      if (length < 0 || length > buffer.remaining()) {
+        throw new IllegalArgumentException("Invalid string length: " + length);
+      }
+      byte[] bytes = new byte[length];
+      buffer.get(bytes);
+      strings.add(new String(bytes, UTF_8));
+    }
+    List<TypeToken<?>> types = new TypeCodec(parser).decodeAll(buffer, count);
+    if (buffer.hasRemaining()) {
+      throw new IllegalArgumentException(buffer.remaining() + " bytes after the last type");
+    }
+    Map<String, TypeToken<?>> results = new LinkedHashMap<String, TypeToken<?>>(count * 2);
+    for (int i = 0; i < count; i++) {
+      results.put(strings.get(i), types.get(i));
+    }
+    return results;
+  }
+
+  private TypeSnapshot() {}
+}
@@ -0,0 +1,124 @@
+package org.jparsec.java;
+
+import java.io.IOException;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+
+/**
+ * Writes types in the syntax {@link TypeParser} accepts, so that what's written parses back to an
+ * equal type.
+ *
+ * <p>Unlike {@link Type#toString}, member types of parameterized types are written as
+ * {@code Outer<String>.Inner<Integer>}, and type variables are rejected instead of being written
+ * as their names. Classes are written by their binary names, and nothing is written to
+ * intermediate strings.
+ *
+ * <p>Classes in the default package are rejected, since {@link TypeParser} reads a name without a
+ * dot as a {@code java.lang} class.
+ */
+public final class TypeWriter {
+
+  /** Returns {@code type} in the syntax {@link TypeParser} accepts. */
+  public static String toString(Type type) {
+    return appendTo(new StringBuilder(), type).toString();
+  }
+
+  /** Appends {@code type} to {@code builder} in the syntax {@link TypeParser} accepts. */
+  public static StringBuilder appendTo(StringBuilder builder, Type type) {
+    try {
+      appendTo((Appendable) builder, type);
+    } catch (IOException e) {
+      throw new AssertionError(e);  // StringBuilder doesn't throw.
+    }
+    return builder;
+  }
+
+  /** Appends {@code type} to {@code appendable} in the syntax {@link TypeParser} accepts. */
+  public static <A extends Appendable> A appendTo(A appendable, Type type) throws IOException {
+    write(appendable, type);
+    return appendable;
+  }
+
+  private static void write(Appendable out, Type type) throws IOException {
+    if (type instanceof Class<?>) {
+      writeClass(out, (Class<?>) type);
+    } else if (type instanceof ParameterizedType) {
+      writeParameterizedType(out, (ParameterizedType) type);
+    } else if (type instanceof WildcardType) {
+      writeWildcardType(out, (WildcardType) type);
+    } else if (type instanceof GenericArrayType) {
+      write(out, ((GenericArrayType) type).getGenericComponentType());
+      out.append("[]");
+    } else {
+      throw new IllegalArgumentException(type + " isn't a reified type");
+    }
+  }
+
+  private static void writeClass(Appendable out, Class<?> cls) throws IOException {
+    if (cls.isArray()) {
+      writeClass(out, cls.getComponentType());
+      out.append("[]");
+    } else {
+      out.append(className(cls));
+    }
+  }
+
+  private static void writeParameterizedType(Appendable out, ParameterizedType type)
+      throws IOException {
+    Class<?> raw = (Class<?>) type.getRawType();
+    Type ownerType = type.getOwnerType();
+    if (ownerType instanceof ParameterizedType) {
+      // Written as a member type of the owner type, which is parameterized in turn.
+      write(out, ownerType);
+      String ownerName = ((Class<?>) ((ParameterizedType) ownerType).getRawType()).getName();
+      out.append('.').append(raw.getName(), ownerName.length() + 1, raw.getName().length());
+      Type[] args = type.getActualTypeArguments();
+      if (args.length > 0) {
+        writeTypeArgs(out, args);
+      }
+    } else {
+      // "<>" is written for a class without type parameters, so it still parses as parameterized.
+      out.append(className(raw));
+      writeTypeArgs(out, type.getActualTypeArguments());
+    }
+  }
+
+  /** Returns the binary name of {@code cls}, which mustn't be in the default package. */
+  private static String className(Class<?> cls) {
+    String name = cls.getName();
+    if (!cls.isPrimitive() && name.indexOf('.') < 0) {
+      throw new IllegalArgumentException(cls + " is in the default package");
+    }
+    return name;
+  }
+
+  private static void writeTypeArgs(Appendable out, Type[] args) throws IOException {
+    out.append('<');
+    for (int i = 0; i < args.length; i++) {
+      if (i > 0) out.append(", ");
+      write(out, args[i]);
+    }
+    out.append('>');
+  }
+
+  private static void writeWildcardType(Appendable out, WildcardType type) throws IOException {
+    Type[] lowerBounds = type.getLowerBounds();
+    Type[] upperBounds = type.getUpperBounds();
+    if (lowerBounds.length > 1 || upperBounds.length > 1) {
+      throw new IllegalArgumentException(type + " has multiple bounds");
+    }
+    if (lowerBounds.length == 1) {
+      out.append("? super ");
+      write(out, lowerBounds[0]);
+    } else if (upperBounds.length == 0 || upperBounds[0] == Object.class) {
+      out.append('?');
+    } else {
+      out.append("? extends ");
+      write(out, upperBounds[0]);
+    }
+  }
+
+  private TypeWriter() {}
+}
@@ -1,80 +1,102 @@
 package org.jparsec.java;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.lang.reflect.Array;
 import java.lang.reflect.GenericArrayType;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
-import java.lang.reflect.TypeVariable;
 import java.lang.reflect.WildcardType;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
-import com.google.common.reflect.AbstractInvocationHandler;
-import com.google.common.reflect.Reflection;
-import com.google.common.reflect.TypeResolver;
+import com.google.common.base.Objects;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.collect.Iterables;
 
 /**
  * Utility class to construct {@link Type} instances reflectively.
+ *
+ * <p>The returned types implement {@code equals()}, {@code hashCode()} and {@code toString()}
+ * the same way as the JDK's own implementations, so they can be compared with, and used
+ * interchangeably with, types obtained through reflection.
  */
-// The crude {@code Type} implementations in this class don't bother implementing
-// equals/hashCode because it's tricky to get them right
-// (especially to return hash code consistent with JDK). As a work-around, we use Guava's
-// TypeResolver to transform the non-conformant type implementations to be
-// standard-conformant, before returning.
 public final class Types {
 
+  private static final Interner<Type> INTERNER = Interners.newWeakInterner();
+
+  private static final Type[] NO_TYPES = new Type[0];
+  private static final Type[] OBJECT_BOUND = {Object.class};
+  private static final boolean LOCAL_CLASSES_HAVE_OWNER = localClassesHaveOwner();
+
   /** Returns a wildcard type that's subtype of {@code bound}. */
   public static WildcardType subtypeOf(Type bound) {
-    final TypeVariable<?> var = TypeVariableGenerator.freshTypeVariable("B");
-    return (WildcardType) new TypeResolver().where(var, bound).resolveType(new WildcardType() {
-      @Override public Type[] getUpperBounds() { return new Type[] {var}; }
-      @Override public Type[] getLowerBounds() { return new Type[0]; }
-    });
+    return new WildcardTypeImpl(NO_TYPES, new Type[] {bound});
   }
 
   /** Returns a wildcard type that's supertype of {@code bound}. */
   public static WildcardType supertypeOf(Type bound) {
-    final TypeVariable<?> var = TypeVariableGenerator.freshTypeVariable("SUB");
-    return (WildcardType) new TypeResolver().where(var, bound).resolveType(new WildcardType() {
-      @Override public Type[] getUpperBounds() { return new Type[] {Object.class}; }
-      @Override public Type[] getLowerBounds() { return new Type[] {var}; }
-    });
+    return new WildcardTypeImpl(new Type[] {bound}, OBJECT_BOUND);
   }
 
-  /** Returns a parameterized type with {@code raw} and {@code typeArgs}. */
-  // TODO: infer types and check that 'raw' can be parameterized by 'typeArgs'.
+  /**
+   * Returns a parameterized type with {@code raw} and {@code typeArgs}. The type arguments aren't
+   * checked against their bounds; {@link TypeParser#withBoundsChecking} does that.
+   */
   public static ParameterizedType newParameterizedType(
-      final Class<?> raw, Iterable<? extends Type> typeArgs) {
-    TypeResolver resolver = new TypeResolver();
-    final List<TypeVariable<?>> vars = new ArrayList<TypeVariable<?>>();
-    for (Type arg : typeArgs) {
-      TypeVariable<?> var = TypeVariableGenerator.freshTypeVariable("T" + vars.size());
-      vars.add(var);
-      resolver = resolver.where(var, arg);
-    }
-    checkArgument(raw.getTypeParameters().length == vars.size(),
-        "%s expected %s type parameters, while %s are provied",
-        raw, raw.getTypeParameters().length, typeArgs);
-    return (ParameterizedType) resolver.resolveType(new ParameterizedType() {
-      @Override public Class<?> getRawType() { return raw; }
-      @Override public Type getOwnerType() { return null; }
-      @Override public Type[] getActualTypeArguments() { return vars.toArray(new Type[0]); }
-    });
+      Class<?> raw, Iterable<? extends Type> typeArgs) {
+    return new ParameterizedTypeImpl(ownerOf(raw), raw, typeArgs(raw, typeArgs));
   }
 
-  /** Returns a new array type with {@code componentType}. */
+  /**
+   * Returns a parameterized type with {@code raw} and {@code typeArgs}, as a member of
+   * {@code ownerType}. For example, {@code Outer<String>.Inner<Integer>} is built with
+   * {@code Outer<String>} as the owner type, {@code Outer.Inner} as the raw type and
+   * {@code Integer} as the type argument. If {@code ownerType} is null, the type is built the
+   * same way as {@link #newParameterizedType}.
+   */
+  public static ParameterizedType newParameterizedTypeWithOwner(
+      Type ownerType, Class<?> raw, Iterable<? extends Type> typeArgs) {
+    if (ownerType == null) {
+      return newParameterizedType(raw, typeArgs);
+    }
+    checkArgument(raw.getEnclosingClass() != null, "Owner type for unenclosed %s", raw);
+    Class<?> ownerClass;
+    if (ownerType instanceof ParameterizedType) {
+      ownerClass = (Class<?>) ((ParameterizedType) ownerType).getRawType();
+      checkArgument(!Modifier.isStatic(raw.getModifiers()),
+          "Static %s cannot have parameterized owner type %s", raw, ownerType);
+    } else {
+      checkArgument(ownerType instanceof Class<?>, "%s cannot be an owner type", ownerType);
+      ownerClass = (Class<?>) ownerType;
+    }
+    checkArgument(raw.getEnclosingClass() == ownerClass,
+        "%s isn't a member of %s", raw, ownerType);
+    return new ParameterizedTypeImpl(ownerType, raw, typeArgs(raw, typeArgs));
+  }
+
+  /**
+   * Returns a new array type with {@code componentType}.
+   * An array of wildcard is the wildcard bounded by the array of the wildcard's bound.
+   */
   public static Type newArrayType(Type componentType) {
     if (componentType instanceof Class<?>) {
       return newArrayType((Class<?>) componentType);
     }
-    final TypeVariable<?> var = TypeVariableGenerator.freshTypeVariable("E");
-    return new TypeResolver().where(var, componentType).resolveType(new GenericArrayType() {
-      @Override public Type getGenericComponentType() { return var; }
-    });
+    if (componentType instanceof WildcardType) {
+      WildcardType wildcard = (WildcardType) componentType;
+      Type[] lowerBounds = wildcard.getLowerBounds();
+      checkArgument(lowerBounds.length <= 1, "Wildcard cannot have more than one lower bounds.");
+      if (lowerBounds.length == 1) {
+        return supertypeOf(newArrayType(lowerBounds[0]));
+      }
+      Type[] upperBounds = wildcard.getUpperBounds();
+      checkArgument(upperBounds.length == 1, "Wildcard should have only one upper bound.");
+      return subtypeOf(newArrayType(upperBounds[0]));
+    }
+    return new GenericArrayTypeImpl(componentType);
   }
 
   /** Returns a new array class with {@code componentType}. */
@@ -82,29 +104,242 @@ public final class Types {
     return Array.newInstance(componentType, 0).getClass();
   }
 
-  private static final class TypeVariableGenerator<T> {
-    private static final TypeVariable<?> PROTOTYPE =
-        TypeVariableGenerator.class.getTypeParameters()[0];
-
-    /** Makes a fresh type variable that's only equal to itself. */
-    @SuppressWarnings("unchecked")  // Delegates to the <T> of class Var except getName().
-    static TypeVariable<Class<?>> freshTypeVariable(final String name) {
-      // Use dynamic proxy so we only changes the behavior of getName() and equals/hashCode
-      // Everything else delegates to a JDK native type variable.
-      return Reflection.newProxy(TypeVariable.class, new AbstractInvocationHandler() {
-        @Override protected Object handleInvocation(Object proxy, Method method, Object[] args)
-            throws Throwable {
-          if (method.getName().equals("getName")) {
-            return name;
-          }
-          try {
-            return method.invoke(PROTOTYPE, args);
-          } catch (InvocationTargetException e) {
-            throw e.getCause();
-          }
-        }
-        @Override public String toString() { return name; }
-      });
+  /**
+   * Returns the canonical instance of {@code type}, so that all interned types that are equal
+   * are also the same instance. The components of an interned type are interned too.
+   *
+   * <p>Canonical instances are weakly referenced, so types that are no longer used can be garbage
+   * collected.
+   */
+  public static Type intern(Type type) {
+    if (type instanceof Class<?>) return type;
+    return INTERNER.intern(withInternedComponents(type));
+  }
+
+  /**
+   * Returns {@code type} if its components are all interned already, or else an equal type
+   * built from the interned components.
+   */
+  private static Type withInternedComponents(Type type) {
+    if (type instanceof ParameterizedType) {
+      ParameterizedType parameterizedType = (ParameterizedType) type;
+      Type owner = parameterizedType.getOwnerType();
+      Type internedOwner = owner == null ? null : intern(owner);
+      Type[] args = parameterizedType.getActualTypeArguments();
+      boolean canonical = type instanceof ParameterizedTypeImpl && internedOwner == owner;
+      canonical &= internAll(args);
+      return canonical
+          ? type
+          : new ParameterizedTypeImpl(
+              internedOwner, (Class<?>) parameterizedType.getRawType(), args);
+    }
+    if (type instanceof WildcardType) {
+      WildcardType wildcardType = (WildcardType) type;
+      Type[] lowerBounds = wildcardType.getLowerBounds();
+      Type[] upperBounds = wildcardType.getUpperBounds();
+      boolean canonical = type instanceof WildcardTypeImpl;
+      canonical &= internAll(lowerBounds);
+      canonical &= internAll(upperBounds);
+      return canonical ? type : new WildcardTypeImpl(lowerBounds, upperBounds);
+    }
+    if (type instanceof GenericArrayType) {
+      Type componentType = ((GenericArrayType) type).getGenericComponentType();
+      Type internedComponentType = intern(componentType);
+      return type instanceof GenericArrayTypeImpl && internedComponentType == componentType
+          ? type
+          : new GenericArrayTypeImpl(internedComponentType);
+    }
+    return type;
+  }
+
+  /** Interns {@code types} in place, and returns true if they were all interned already. */
+  private static boolean internAll(Type[] types) {
+    boolean interned = true;
+    for (int i = 0; i < types.length; i++) {
+      Type type = types[i];
+      types[i] = intern(type);
+      interned &= types[i] == type;
+    }
+    return interned;
+  }
+
+  private static Type[] typeArgs(Class<?> raw, Iterable<? extends Type> typeArgs) {
+    Type[] args = Iterables.toArray(typeArgs, Type.class);
+    checkArgument(raw.getTypeParameters().length == args.length,
+        "%s expected %s type parameters, while %s are provied",
+        raw, raw.getTypeParameters().length, typeArgs);
+    return args;
+  }
+
+  /** Returns the owner type of {@code raw} when parameterized, the same way as the JVM does. */
+  private static Class<?> ownerOf(Class<?> raw) {
+    return raw.isLocalClass() && !LOCAL_CLASSES_HAVE_OWNER ? null : raw.getEnclosingClass();
+  }
+
+  private static boolean localClassesHaveOwner() {
+    class LocalClass<T> {}
+    Type type = new LocalClass<String>() {}.getClass().getGenericSuperclass();
+    return ((ParameterizedType) type).getOwnerType() != null;
+  }
+
+  private static void disallowPrimitiveTypes(Type[] types, String usedAs) {
+    for (Type type : types) {
+      checkNotNull(type);
+      if (type instanceof Class<?>) {
+        checkArgument(!((Class<?>) type).isPrimitive(),
+            "Primitive type '%s' used as %s", type, usedAs);
+      }
+    }
+  }
+
+  private static String typeNames(Type[] types, String separator) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < types.length; i++) {
+      if (i > 0) builder.append(separator);
+      builder.append(types[i].getTypeName());
+    }
+    return builder.toString();
+  }
+
+  private static final class ParameterizedTypeImpl implements ParameterizedType {
+    private final Type ownerType;
+    private final Class<?> rawType;
+    private final Type[] typeArgs;
+    private final int hashCode;
+
+    ParameterizedTypeImpl(Type ownerType, Class<?> rawType, Type[] typeArgs) {
+      disallowPrimitiveTypes(typeArgs, "type parameter");
+      this.ownerType = ownerType;
+      this.rawType = rawType;
+      this.typeArgs = typeArgs;
+      this.hashCode = Arrays.hashCode(typeArgs)
+          ^ (ownerType == null ? 0 : ownerType.hashCode())
+          ^ rawType.hashCode();
+    }
+
+    @Override public Type getOwnerType() {
+      return ownerType;
+    }
+
+    @Override public Class<?> getRawType() {
+      return rawType;
+    }
+
+    @Override public Type[] getActualTypeArguments() {
+      return typeArgs.clone();
+    }
+
+    @Override public boolean equals(Object obj) {
+      if (obj == this) return true;
+      if (obj instanceof ParameterizedTypeImpl) {
+        ParameterizedTypeImpl that = (ParameterizedTypeImpl) obj;
+        return hashCode == that.hashCode
+            && rawType.equals(that.rawType)
+            && Objects.equal(ownerType, that.ownerType)
+            && Arrays.equals(typeArgs, that.typeArgs);
+      }
+      if (obj instanceof ParameterizedType) {
+        ParameterizedType that = (ParameterizedType) obj;
+        return rawType.equals(that.getRawType())
+            && Objects.equal(ownerType, that.getOwnerType())
+            && Arrays.equals(typeArgs, that.getActualTypeArguments());
+      }
+      return false;
+    }
+
+    @Override public int hashCode() {
+      return hashCode;
+    }
+
+    @Override public String toString() {
+      StringBuilder builder = new StringBuilder();
+      if (ownerType instanceof ParameterizedType) {
+        builder.append(ownerType.getTypeName()).append('$').append(rawType.getSimpleName());
+      } else {
+        builder.append(rawType.getName());
+      }
+      if (typeArgs.length > 0) {
+        builder.append('<').append(typeNames(typeArgs, ", ")).append('>');
+      }
+      return builder.toString();
+    }
+  }
+
+  private static final class WildcardTypeImpl implements WildcardType {
+    private final Type[] lowerBounds;
+    private final Type[] upperBounds;
+    private final int hashCode;
+
+    WildcardTypeImpl(Type[] lowerBounds, Type[] upperBounds) {
+      disallowPrimitiveTypes(lowerBounds, "lower bound for wildcard");
+      disallowPrimitiveTypes(upperBounds, "upper bound for wildcard");
+      this.lowerBounds = lowerBounds;
+      this.upperBounds = upperBounds;
+      this.hashCode = Arrays.hashCode(lowerBounds) ^ Arrays.hashCode(upperBounds);
+    }
+
+    @Override public Type[] getLowerBounds() {
+      return lowerBounds.clone();
+    }
+
+    @Override public Type[] getUpperBounds() {
+      return upperBounds.clone();
+    }
+
+    @Override public boolean equals(Object obj) {
+      if (obj == this) return true;
+      if (obj instanceof WildcardTypeImpl) {
+        WildcardTypeImpl that = (WildcardTypeImpl) obj;
+        return hashCode == that.hashCode
+            && Arrays.equals(lowerBounds, that.lowerBounds)
+            && Arrays.equals(upperBounds, that.upperBounds);
+      }
+      if (obj instanceof WildcardType) {
+        WildcardType that = (WildcardType) obj;
+        return Arrays.equals(lowerBounds, that.getLowerBounds())
+            && Arrays.equals(upperBounds, that.getUpperBounds());
+      }
+      return false;
+    }
+
+    @Override public int hashCode() {
+      return hashCode;
+    }
+
+    @Override public String toString() {
+      if (lowerBounds.length > 0) {
+        return "? super " + typeNames(lowerBounds, " & ");
+      }
+      if (upperBounds.length == 0 || upperBounds[0].equals(Object.class)) {
+        return "?";
+      }
+      return "? extends " + typeNames(upperBounds, " & ");
+    }
+  }
+
+  private static final class GenericArrayTypeImpl implements GenericArrayType {
+    private final Type componentType;
+
+    GenericArrayTypeImpl(Type componentType) {
+      this.componentType = checkNotNull(componentType);
+    }
+
+    @Override public Type getGenericComponentType() {
+      return componentType;
+    }
+
+    @Override public boolean equals(Object obj) {
+      return obj == this
+          || (obj instanceof GenericArrayType
+              && componentType.equals(((GenericArrayType) obj).getGenericComponentType()));
+    }
+
+    @Override public int hashCode() {
+      return componentType.hashCode();
+    }
+
+    @Override public String toString() {
+      return componentType.getTypeName() + "[]";
     }
   }
 
@@ -0,0 +1,24 @@
+package org.jparsec.java;
+
+/**
+ * Thrown when a class referenced by a type expression can't be loaded.
+ *
+ * <p>Unresolvable names typically come from untrusted input, so this exception doesn't fill in
+ * its stack trace, which makes rejecting such input cheap.
+ */
+public final class UnresolvedClassException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  private final String className;
+
+  UnresolvedClassException(String className) {
+    super("Class not found: " + className, null, false, false);
+    this.className = className;
+  }
+
+  /** Returns the name of the class that couldn't be loaded. */
+  public String getClassName() {
+    return className;
+  }
+}
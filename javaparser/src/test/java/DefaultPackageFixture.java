@@ -0,0 +1,2 @@
+/** A class in the default package, which {@code TypeWriter} can't write so that it parses back. */
+public class DefaultPackageFixture<T> {}
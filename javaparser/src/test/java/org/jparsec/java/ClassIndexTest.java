@@ -0,0 +1,168 @@
+package org.jparsec.java;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.codehaus.jparsec.error.ParserException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.reflect.TypeToken;
+
+@RunWith(JUnit4.class)
+public class ClassIndexTest {
+
+  @Test
+  public void indexesTopLevelClasses() throws IOException {
+    Path root = Files.createTempDirectory("classindex");
+    try {
+      ClassIndex index = ClassIndex.open(root.resolve("index"), classpath(root));
+      assertEquals(ImmutableList.of("com.acme.Order"), index.classNames("Order"));
+      assertEquals(
+          ImmutableList.of("com.acme.util.List", "com.acme.util.more.List"),
+          index.classNames("List"));
+      assertEquals(ImmutableList.of(), index.classNames("Line"));
+      assertEquals(ImmutableList.of(), index.classNames("package-info"));
+      assertEquals(ImmutableList.of(), index.classNames("Versioned"));
+      assertTrue(index.contains("com.acme.util.List"));
+      assertFalse(index.contains("com.acme.List"));
+      assertTrue(index.hasPackage("com.acme"));
+      assertFalse(index.hasPackage("java.lang"));
+    } finally {
+      delete(root);
+    }
+  }
+
+  @Test
+  public void rebuiltWhenClasspathChanges() throws IOException {
+    Path root = Files.createTempDirectory("classindex");
+    try {
+      Path indexFile = root.resolve("index");
+      List<Path> classpath = classpath(root);
+      ClassIndex.open(indexFile, classpath);
+      FileTime built = FileTime.fromMillis(0);
+      Files.setLastModifiedTime(indexFile, built);
+
+      ClassIndex.open(indexFile, classpath);
+      assertEquals(built, Files.getLastModifiedTime(indexFile));
+
+      createFile(root.resolve("classes/com/acme/Invoice.class"));
+      ClassIndex index = ClassIndex.open(indexFile, classpath);
+      assertEquals(ImmutableList.of("com.acme.Invoice"), index.classNames("Invoice"));
+      assertEquals(ClassIndex.fingerprint(classpath), index.fingerprint());
+    } finally {
+      delete(root);
+    }
+  }
+
+  @Test
+  public void rebuiltWhenUnreadable() throws IOException {
+    Path root = Files.createTempDirectory("classindex");
+    try {
+      Path indexFile = root.resolve("index");
+      List<Path> classpath = classpath(root);
+      ClassIndex.open(indexFile, classpath);
+      byte[] valid = Files.readAllBytes(indexFile);
+
+      byte[] otherVersion = valid.clone();
+      otherVersion[7] = 99;
+      List<byte[]> unreadable = ImmutableList.of(
+          new byte[0], "not an index".getBytes(UTF_8), otherVersion,
+          Arrays.copyOf(valid, 30), Arrays.copyOf(valid, valid.length - 3));
+      for (byte[] bytes : unreadable) {
+        Files.write(indexFile, bytes);
+        ClassIndex index = ClassIndex.open(indexFile, classpath);
+        assertEquals(ImmutableList.of("com.acme.Order"), index.classNames("Order"));
+      }
+    } finally {
+      delete(root);
+    }
+  }
+
+  @Test
+  public void parserResolvesOnDemandImportsThroughIndex() throws IOException {
+    Path root = Files.createTempDirectory("classindex");
+    try {
+      TypeParser parser = new TypeParser()
+          .withImports("java.util.*")
+          .withClassIndex(ClassIndex.open(root.resolve("index"), classpath(root)));
+      assertEquals(new TypeToken<Map<String, Integer>>() {}, parser.parse("Map<String, Integer>"));
+      try {
+        // Not in the index, though the class loader has it.
+        parser.parse("List<String>");
+        fail();
+      } catch (ParserException e) {
+        assertTrue(e.getCause() instanceof UnresolvedClassException);
+      }
+    } finally {
+      delete(root);
+    }
+  }
+
+  @Test
+  public void parserResolvesQualifiedSymbolicNamesThroughIndex() throws IOException {
+    Path root = Files.createTempDirectory("classindex");
+    try {
+      TypeParser parser = new TypeParser()
+          .withImports("com.acme.*")
+          .withClassIndex(ClassIndex.open(root.resolve("index"), classpath(root)));
+      assertEquals("com.acme.Order$Line", parser.parseSymbolic("Order.Line").toString());
+      assertEquals("com.acme.Order", parser.parseSymbolic("com.acme.Order").toString());
+    } finally {
+      delete(root);
+    }
+  }
+
+  /** Creates a classpath of a class directory and a jar under {@code root}. */
+  private static List<Path> classpath(Path root) throws IOException {
+    Path classes = root.resolve("classes");
+    createFile(classes.resolve("com/acme/Order.class"));
+    createFile(classes.resolve("com/acme/Order$Line.class"));
+    createFile(classes.resolve("com/acme/package-info.class"));
+    createFile(classes.resolve("java/util/Map.class"));
+    Path jar = root.resolve("lib.jar");
+    try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+      for (String name : Arrays.asList(
+          "com/acme/util/", "com/acme/util/List.class", "com/acme/util/more/List.class",
+          "META-INF/versions/9/com/acme/Versioned.class", "com/acme/util/README")) {
+        out.putNextEntry(new ZipEntry(name));
+        out.closeEntry();
+      }
+    }
+    return ImmutableList.of(classes, jar);
+  }
+
+  private static void createFile(Path file) throws IOException {
+    Files.createDirectories(file.getParent());
+    try (OutputStream out = Files.newOutputStream(file)) {
+      out.write(0xca);
+    }
+  }
+
+  private static void delete(Path root) throws IOException {
+    try (Stream<Path> files = Files.walk(root)) {
+      for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+        Files.delete(file);
+      }
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package org.jparsec.java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ClassResolverTest {
+
+  @Test
+  public void loadedClassesAreSharedPerClassLoader() {
+    CountingClassLoader loader = new CountingClassLoader();
+    assertNull(ClassResolver.cached(loader, "java.lang.String"));
+    assertSame(String.class, new ClassResolver(loader, null).load("java.lang.String"));
+    // The JVM remembers the class for the loader too, so only the cache shows it's shared.
+    assertSame(String.class, ClassResolver.cached(loader, "java.lang.String"));
+    assertSame(String.class, new ClassResolver(loader, null).load("java.lang.String"));
+    assertEquals(1, loader.loads.get());
+  }
+
+  @Test
+  public void classLoadersDoNotShareCache() {
+    CountingClassLoader loader1 = new CountingClassLoader();
+    CountingClassLoader loader2 = new CountingClassLoader();
+    new ClassResolver(loader1, null).load("java.lang.String");
+    assertNull(ClassResolver.cached(loader2, "java.lang.String"));
+    new ClassResolver(loader2, null).load("java.lang.String");
+    assertEquals(1, loader1.loads.get());
+    assertEquals(1, loader2.loads.get());
+  }
+
+  @Test(expected = UnresolvedClassException.class)
+  public void unresolvedClass() {
+    new ClassResolver(new CountingClassLoader(), null).load("no.such.Class");
+  }
+
+  private static final class CountingClassLoader extends ClassLoader {
+    final AtomicInteger loads = new AtomicInteger();
+
+    CountingClassLoader() {
+      super(ClassResolverTest.class.getClassLoader());
+    }
+
+    @Override protected Class<?> loadClass(String name, boolean resolve)
+        throws ClassNotFoundException {
+      loads.incrementAndGet();
+      return super.loadClass(name, resolve);
+    }
+  }
+}
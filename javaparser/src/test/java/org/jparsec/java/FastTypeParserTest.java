@@ -0,0 +1,120 @@
+package org.jparsec.java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Type;
+
+import org.codehaus.jparsec.error.ParserException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Verifies that {@link FastTypeParser} agrees with the {@link TypeParser} grammar. */
+@RunWith(JUnit4.class)
+public class FastTypeParserTest {
+
+  private static final String[] VALID = {
+    "int", "void", "double", "Integer", "java.lang.Integer", "java . util . Map", "java. util .Map",
+    " String ", "int[]", "int [ ] [ ]", "boolean [ ]", "String[]", "[I", "[[I", "[ [ Z",
+    "[C", "[Ljava.lang.String;", "[[Ljava.util.List;", "[I[]", "?", "? extends Number",
+    "?extends Number", "? super Integer", "?[]", "? extends Number[]",
+    "java.util.List<String>", "java.util.List<java.util.List<String>>",
+    "java.util.Map<?, ? extends Number>", "java.util.Map< String , int[] >",
+    "java.util.List<? super java.util.List<?>>", "java.lang.Iterable<String>[]",
+    "java.util.List<java.lang.Iterable<int[][]>[][]>", "java.util.List<[Ljava.lang.String;>",
+    "java.util.Map$Entry<String, Integer>", "Enum<?>", "Class<?>[]",
+    "org.jparsec.java.FastTypeParserTest$Bounded<?>",
+    "org.jparsec.java.FastTypeParserTest$Outer<String>.Inner<Integer>",
+    "org.jparsec.java.FastTypeParserTest$Outer<String> . Inner < Integer > [ ]",
+    "org.jparsec.java.FastTypeParserTest$Outer<String>$Inner<Integer>",
+    "org.jparsec.java.FastTypeParserTest$Outer<?>.Inner<?>.Deeper",
+    "org.jparsec.java.FastTypeParserTest$Outer<?>$Inner<?>$Deeper",
+  };
+
+  private static final String[] INVALID = {
+    "", " ", "?extends", "? extends", "? super", "extends", "super", "java.lang.super",
+    "java.util.List<", "java.util.List<String", "java.util.List<String,>",
+    "java.util.List<,String>", "java.util.List<String>>", "java.util.List<String><String>",
+    "int[", "int]", "int[]<String>", "[I<String>", "[Ljava.lang.Object", "[java.lang.Object;",
+    "[", "java.", ".String", "java..String", "String String", "? String", "@String",
+    "String & Number", "java.util.List<?>?",
+    "org.jparsec.java.FastTypeParserTest$Outer<String>.",
+    "org.jparsec.java.FastTypeParserTest$Outer<String>$",
+    "org.jparsec.java.FastTypeParserTest$Outer<String>Inner<Integer>",
+  };
+
+  /** Well-formed, but naming classes that don't exist, or types that can't be built. */
+  private static final String[] INVALID_TYPES = {
+    "java.util.Map<String>", "java.util.List<>", "Iterable<int>", "void[]",
+    "[Ljava.lang.Object;;", "no.such.Class", "Integer;",
+    "org.jparsec.java.FastTypeParserTest$Outer<String>.Missing",
+    "org.jparsec.java.FastTypeParserTest$Outer<String>.Inner",
+  };
+
+  private final TypeParser parser = new TypeParser();
+
+  @Test
+  public void validInputParsedTheSameWay() {
+    for (String string : VALID) {
+      Type type = FastTypeParser.parse(parser, string);
+      assertNotNull(string, type);
+      assertEquals(string, parser.parseWithGrammar(string), type);
+    }
+  }
+
+  @Test
+  public void invalidInputRejectedByBoth() {
+    for (String string : INVALID) {
+      assertNull(string, FastTypeParser.parse(parser, string));
+      try {
+        parser.parseWithGrammar(string);
+        fail(string + " should have failed to parse");
+      } catch (ParserException expected) {}
+    }
+  }
+
+  @Test
+  public void invalidTypeReportedWithoutGrammar() {
+    for (String string : INVALID_TYPES) {
+      try {
+        FastTypeParser.parse(parser, string);
+        fail(string + " should have failed");
+      } catch (FastTypeParser.TypeException expected) {}
+      try {
+        parser.parse(string);
+        fail(string + " should have failed to parse");
+      } catch (ParserException e) {
+        assertTrue(string, e.getCause() instanceof UnresolvedClassException
+            || e.getCause() instanceof IllegalArgumentException);
+      }
+    }
+  }
+
+  @Test
+  public void invalidTypeLocatedWhereItBegins() {
+    assertErrorLocation("java.util.List<\n  no.such.Class>", 2, 3);
+    assertErrorLocation(" java.util.Map<String>", 1, 2);
+  }
+
+  private void assertErrorLocation(String string, int line, int column) {
+    try {
+      parser.parse(string);
+      fail(string + " should have failed to parse");
+    } catch (ParserException e) {
+      assertEquals(line, e.getLocation().line);
+      assertEquals(column, e.getLocation().column);
+    }
+  }
+
+  private interface Bounded<T extends Number> {}
+
+  private static class Outer<T> {
+    class Inner<U> {
+      class Deeper {}
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package org.jparsec.java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.google.common.reflect.TypeToken;
+
+@RunWith(JUnit4.class)
+@SuppressWarnings("serial")
+public class SignatureParserTest {
+
+  private static final String[] INVALID = {
+    "", "V", "L", "Ljava/lang/String", "java/lang/String;", "Ljava/lang/String;;", "[", "[V",
+    "Ljava/util/List<>;", "Ljava/util/List<I>;", "Ljava/util/List<Ljava/lang/String;",
+    "Ljava/util/List<Ljava/lang/String;>", "Ljava//util/List;", "Ljava/util/Map.Entry/X;",
+    "TT;", "Ljava/util/List<TT;>;", "Ljava/util/List<+>;", "Ljava/util/Map<Ljava/lang/String;>;",
+  };
+
+  private final TypeParser parser = new TypeParser();
+
+  @Test
+  public void descriptors() {
+    assertEquals(TypeToken.of(int.class), parser.parseSignature("I"));
+    assertEquals(TypeToken.of(boolean[].class), parser.parseSignature("[Z"));
+    assertEquals(TypeToken.of(String.class), parser.parseSignature("Ljava/lang/String;"));
+    assertEquals(TypeToken.of(String[][].class), parser.parseSignature("[[Ljava/lang/String;"));
+    assertEquals(TypeToken.of(Map.Entry.class), parser.parseSignature("Ljava/util/Map$Entry;"));
+  }
+
+  @Test
+  public void genericSignatures() {
+    assertEquals(new TypeToken<Map<String, List<int[]>>>() {},
+        parser.parseSignature("Ljava/util/Map<Ljava/lang/String;Ljava/util/List<[I>;>;"));
+    assertEquals(new TypeToken<Map<?, ? extends Number>>() {},
+        parser.parseSignature("Ljava/util/Map<*+Ljava/lang/Number;>;"));
+    assertEquals(new TypeToken<List<? super List<String>[]>>() {},
+        parser.parseSignature("Ljava/util/List<-[Ljava/util/List<Ljava/lang/String;>;>;"));
+    assertEquals(new TypeToken<Map.Entry<String, Long>[]>() {},
+        parser.parseSignature("[Ljava/util/Map$Entry<Ljava/lang/String;Ljava/lang/Long;>;"));
+  }
+
+  @Test
+  public void memberTypes() {
+    assertEquals(new TypeToken<Outer<String>.Inner<Integer>>() {}, parser.parseSignature(
+        "Lorg/jparsec/java/SignatureParserTest$Outer<Ljava/lang/String;>"
+            + ".Inner<Ljava/lang/Integer;>;"));
+    assertEquals(new TypeToken<Outer<String>.Inner<Integer>.Deeper>() {}, parser.parseSignature(
+        "Lorg/jparsec/java/SignatureParserTest$Outer<Ljava/lang/String;>"
+            + ".Inner<Ljava/lang/Integer;>.Deeper;"));
+  }
+
+  @Test
+  public void sameAsParsedTypes() {
+    TypeToken<?> type = new TypeToken<Map<String, ? extends List<long[]>>>() {};
+    assertEquals(parser.parse(type.toString()), parser.parseSignature(
+        "Ljava/util/Map<Ljava/lang/String;+Ljava/util/List<[J>;>;"));
+  }
+
+  @Test
+  public void invalidSignatures() {
+    for (String signature : INVALID) {
+      try {
+        parser.parseSignature(signature);
+        fail(signature + " should have failed to parse");
+      } catch (IllegalArgumentException expected) {}
+    }
+  }
+
+  @Test(expected = UnresolvedClassException.class)
+  public void unresolvedClass() {
+    parser.parseSignature("Lno/such/Class;");
+  }
+
+  private static class Outer<T> {
+    class Inner<U> {
+      class Deeper {}
+    }
+  }
+}
@@ -0,0 +1,144 @@
+package org.jparsec.java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class SymbolicTypeTest {
+
+  private static final String[] VALID = {
+    "int", "Integer", "java . util . Map", "int [ ] [ ]", "[I", "[[Ljava.lang.String;", "?",
+    "? extends Number", "? super Integer", "? extends Object", "java.util.List<String>",
+    "java.util.Map<?, ? extends Number>", "java.util.List<? super java.util.List<?>>",
+    "java.lang.Iterable<String>[]", "java.util.List<[Ljava.lang.String;>",
+    "java.util.Map$Entry<String, Integer>", "Class<?>[]",
+    "org.jparsec.java.SymbolicTypeTest$Outer<String>.Inner<Integer>",
+    "org.jparsec.java.SymbolicTypeTest$Outer<String>$Inner<Integer>[]",
+    "org.jparsec.java.SymbolicTypeTest$Outer<?>.Inner<?>.Deeper",
+    "org.jparsec.java.SymbolicTypeTest$Outer<?>$Inner<?>$Deeper",
+  };
+
+  private final TypeParser parser = new TypeParser();
+
+  @Test
+  public void resolvesToParsedType() {
+    for (String string : VALID) {
+      SymbolicType type = parser.parseSymbolic(string);
+      assertEquals(string, parser.parse(string), type.resolve());
+      assertEquals(string, TypeWriter.toString(parser.parse(string).getType()), type.toString());
+    }
+  }
+
+  @Test
+  public void classesAreNotLoadedUntilResolved() {
+    List<String> loaded = new ArrayList<String>();
+    ClassLoader loader = new ClassLoader(null) {
+      @Override protected Class<?> loadClass(String name, boolean resolve)
+          throws ClassNotFoundException {
+        loaded.add(name);
+        return super.loadClass(name, resolve);
+      }
+    };
+    SymbolicType type = new TypeParser(loader)
+        .parseSymbolic("com.acme.Missing<String, java.util.List<? extends com.acme.Other[]>>");
+    assertEquals(
+        "com.acme.Missing<java.lang.String, java.util.List<? extends com.acme.Other[]>>",
+        type.toString());
+    assertEquals(0, loaded.size());
+    SymbolicType.Parameterized parameterized = (SymbolicType.Parameterized) type;
+    assertNull(parameterized.getOwnerType());
+    assertEquals("com.acme.Missing", parameterized.getRawType().getName());
+    assertEquals("java.lang.String",
+        ((SymbolicType.Named) parameterized.getTypeArguments().get(0)).getName());
+    try {
+      type.resolve();
+      fail();
+    } catch (UnresolvedClassException e) {
+      assertEquals("com.acme.Missing", e.getClassName());
+    }
+    assertTrue(loaded.contains("com.acme.Missing"));
+  }
+
+  @Test
+  public void resolvedOnce() {
+    SymbolicType type = parser.parseSymbolic("java.util.List<Integer[]>");
+    assertSame(type.resolve(), type.resolve());
+  }
+
+  @Test
+  public void equalByName() {
+    SymbolicType type = parser.parseSymbolic("java.util.Map$Entry<String, ?>");
+    SymbolicType same = parser.parseSymbolic("java.util.Map$Entry< java.lang.String ,? >");
+    assertEquals(type, same);
+    assertEquals(type.hashCode(), same.hashCode());
+    assertEquals(parser.parseSymbolic("?"), parser.parseSymbolic("? extends java.lang.Object"));
+    assertFalse(type.equals(parser.parseSymbolic("java.util.Map$Entry<String, Object>")));
+    assertFalse(parser.parseSymbolic("int[]").equals(parser.parseSymbolic("[I[]")));
+  }
+
+  @Test
+  public void memberType() {
+    SymbolicType.Parameterized type = (SymbolicType.Parameterized) parser.parseSymbolic(
+        "org.jparsec.java.SymbolicTypeTest$Outer<String>$Inner<Integer>$Deeper");
+    assertEquals("org.jparsec.java.SymbolicTypeTest$Outer$Inner$Deeper",
+        type.getRawType().getName());
+    assertEquals(0, type.getTypeArguments().size());
+    assertEquals(
+        "org.jparsec.java.SymbolicTypeTest$Outer<java.lang.String>.Inner<java.lang.Integer>",
+        type.getOwnerType().toString());
+  }
+
+  @Test
+  public void importedNamesResolvedToBinaryNames() {
+    TypeParser withImports = parser.withImports("java.util.*", "java.util.Map");
+    assertEquals("java.util.List<java.util.Map$Entry>",
+        withImports.parseSymbolic("List<Map.Entry>").toString());
+  }
+
+  @Test
+  public void qualifiedNamesNotLoadedWithImports() {
+    List<String> loaded = new ArrayList<String>();
+    ClassLoader loader = new ClassLoader(null) {
+      @Override protected Class<?> loadClass(String name, boolean resolve)
+          throws ClassNotFoundException {
+        loaded.add(name);
+        return super.loadClass(name, resolve);
+      }
+    };
+    TypeParser withImports = new TypeParser(loader)
+        .withImports("java.util.Map", "java.util.concurrent.*");
+    loaded.clear();
+    SymbolicType type = withImports.parseSymbolic(
+        "java.util.List<Map.Entry<java.lang.String, com.acme.Missing>>");
+    assertEquals("java.util.List<java.util.Map$Entry<java.lang.String, com.acme.Missing>>",
+        type.toString());
+    assertEquals(0, loaded.size());
+  }
+
+  @Test
+  public void invalidTypeRejectedWhenResolved() {
+    SymbolicType type = parser.parseSymbolic("java.util.Map<String>");
+    try {
+      type.resolve();
+      fail();
+    } catch (IllegalArgumentException expected) {}
+    assertTrue(((SymbolicType.Named) parser.parseSymbolic("void")).isPrimitive());
+  }
+
+  private static class Outer<T> {
+    class Inner<U> {
+      class Deeper {}
+    }
+  }
+}
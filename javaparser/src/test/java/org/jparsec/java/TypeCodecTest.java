@@ -0,0 +1,152 @@
+package org.jparsec.java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.google.common.reflect.TypeToken;
+
+@RunWith(JUnit4.class)
+@SuppressWarnings("serial")
+public class TypeCodecTest {
+
+  private final TypeCodec codec = new TypeCodec();
+
+  @Test
+  public void roundTrip() {
+    assertRoundTrip(TypeToken.of(int.class));
+    assertRoundTrip(TypeToken.of(char.class));
+    assertRoundTrip(new TypeToken<List<char[]>>() {});
+    assertRoundTrip(TypeToken.of(String.class));
+    assertRoundTrip(TypeToken.of(int[][].class));
+    assertRoundTrip(TypeToken.of(String[].class));
+    assertRoundTrip(new TypeToken<List<String>>() {});
+    assertRoundTrip(new TypeToken<Map<?, ? extends Number>>() {});
+    assertRoundTrip(new TypeToken<List<? super int[]>>() {});
+    assertRoundTrip(new TypeToken<List<String>[][]>() {});
+    assertRoundTrip(new TypeToken<Map.Entry<String, List<?>>>() {});
+    assertRoundTrip(new TypeToken<Outer<String>.Inner<Integer>>() {});
+    assertRoundTrip(new TypeToken<Outer<String>.Inner<Integer>.Deeper>() {});
+  }
+
+  @Test
+  public void classNamesAreWrittenOnce() {
+    byte[] strings = codec.encode(new TypeToken<Map<String, String>>() {});
+    byte[] integers = codec.encode(new TypeToken<Map<String, Integer>>() {});
+    assertEquals(1 + "java.lang.Integer".length(), integers.length - strings.length);
+  }
+
+  @Test
+  public void byteBuffer() {
+    ByteBuffer buffer = ByteBuffer.allocate(100);
+    codec.encode(new TypeToken<List<String>>() {}, buffer);
+    codec.encode(TypeToken.of(int[].class), buffer);
+    buffer.flip();
+    assertEquals(new TypeToken<List<String>>() {}, codec.decode(buffer));
+    assertEquals(TypeToken.of(int[].class), codec.decode(buffer));
+    assertEquals(0, buffer.remaining());
+  }
+
+  @Test
+  public void stream() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    codec.encode(new TypeToken<List<String>>() {}, out);
+    codec.encode(new TypeToken<Map<String, Integer>>() {}, out);
+    ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+    assertEquals(new TypeToken<List<String>>() {}, codec.decode(in));
+    assertEquals(new TypeToken<Map<String, Integer>>() {}, codec.decode(in));
+    assertEquals(-1, in.read());
+  }
+
+  @Test
+  public void decodedThroughParser() {
+    TypeCodec interning = new TypeCodec(new TypeParser().withInterning());
+    byte[] bytes = interning.encode(new TypeToken<Map<String, List<Long>>>() {});
+    assertSame(interning.decode(bytes), interning.decode(bytes));
+  }
+
+  @Test(expected = BufferUnderflowException.class)
+  public void truncatedBuffer() {
+    byte[] bytes = codec.encode(new TypeToken<List<String>>() {});
+    codec.decode(Arrays.copyOf(bytes, bytes.length - 1));
+  }
+
+  @Test(expected = EOFException.class)
+  public void truncatedStream() throws IOException {
+    byte[] bytes = codec.encode(new TypeToken<List<String>>() {});
+    codec.decode(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 1)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unsupportedVersion() {
+    byte[] bytes = codec.encode(TypeToken.of(String.class));
+    bytes[0] = 99;
+    codec.decode(bytes);
+  }
+
+  @Test
+  public void signatureTypeDecoded() {
+    TypeToken<?> type = new TypeParser().parseSignature("C");
+    assertEquals(type, codec.decode(codec.encode(type)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void corruptClassCount() {
+    codec.decode(new byte[] {1, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x07});
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void corruptClassNameLength() {
+    codec.decode(new byte[] {1, 1, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x07});
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void corruptTypeArgCount() {
+    // One class "int", then a parameterized type of it with 2^31-1 type arguments.
+    codec.decode(new byte[] {
+        1, 1, 3, 'i', 'n', 't', 1, 0, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x07});
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void corruptClassCountInStream() throws IOException {
+    codec.decode(new ByteArrayInputStream(
+        new byte[] {1, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x07}));
+  }
+
+  @Test
+  public void unresolvedClass() {
+    byte[] bytes = codec.encode(TypeToken.of(String.class));
+    bytes[bytes.length - 6] = 'X';  // Changes "java.lang.String" to "java.lang.StXing".
+    try {
+      codec.decode(bytes);
+      fail();
+    } catch (UnresolvedClassException e) {
+      assertTrue(e.getClassName().endsWith("StXing"));
+    }
+  }
+
+  private void assertRoundTrip(TypeToken<?> type) {
+    assertEquals(type, codec.decode(codec.encode(type)));
+  }
+
+  private static class Outer<T> {
+    class Inner<U> {
+      class Deeper {}
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package org.jparsec.java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.google.common.reflect.TypeToken;
+
+@RunWith(JUnit4.class)
+@SuppressWarnings("serial")
+public class TypeIndexTest {
+
+  private final TypeParser parser = new TypeParser().withInterning();
+  private final TypeIndex index = new TypeIndex();
+
+  @Test
+  public void rawClasses() {
+    assertTrue(index.isSubtypeOf(TypeToken.of(ArrayList.class), TypeToken.of(RandomAccess.class)));
+    assertTrue(index.isSubtypeOf(TypeToken.of(Runnable.class), TypeToken.of(Object.class)));
+    assertTrue(index.isSubtypeOf(Integer.class, Serializable.class));
+    assertFalse(index.isSubtypeOf(Integer.class, String.class));
+    assertFalse(index.isSubtypeOf(Object.class, Integer.class));
+  }
+
+  @Test
+  public void parameterizedTypes() {
+    TypeToken<?> arrayList = parser.parse("java.util.ArrayList<String>");
+    assertTrue(index.isSubtypeOf(arrayList, parser.parse("java.util.List<String>")));
+    assertTrue(index.isSubtypeOf(arrayList, parser.parse("java.util.Collection<?>")));
+    assertTrue(index.isSubtypeOf(arrayList, parser.parse("Iterable<? extends CharSequence>")));
+    assertTrue(index.isSubtypeOf(arrayList, TypeToken.of(Collection.class)));
+    assertFalse(index.isSubtypeOf(arrayList, parser.parse("java.util.List<Object>")));
+    assertFalse(index.isSubtypeOf(arrayList, parser.parse("java.util.Set<String>")));
+  }
+
+  @Test
+  public void arraysAndPrimitives() {
+    assertTrue(index.isSubtypeOf(String[].class, Object[].class));
+    assertTrue(index.isSubtypeOf(
+        new TypeToken<List<String>[]>() {}, new TypeToken<Collection<String>[]>() {}));
+    assertTrue(index.isSubtypeOf(int.class, int.class));
+    assertFalse(index.isSubtypeOf(int[].class, Object[].class));
+  }
+
+  @Test
+  public void assignability() {
+    assertTrue(index.isAssignableFrom(
+        parser.parse("java.util.List<? extends Number>"), parser.parse("java.util.List<Integer>")));
+    assertFalse(index.isAssignableFrom(
+        parser.parse("java.util.List<Integer>"), parser.parse("java.util.List<? extends Number>")));
+  }
+
+  @Test
+  public void answersAreRemembered() {
+    TypeToken<?> type = parser.parse("java.util.ArrayList<String>");
+    TypeToken<?> supertype = parser.parse("java.util.List<String>");
+    assertTrue(index.isSubtypeOf(type, supertype));
+    assertTrue(index.isSubtypeOf(type, supertype));
+    assertEquals(1, index.stats().missCount());
+    assertEquals(1, index.stats().hitCount());
+  }
+}
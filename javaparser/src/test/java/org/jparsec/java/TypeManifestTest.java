@@ -0,0 +1,142 @@
+package org.jparsec.java;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.google.common.reflect.TypeToken;
+
+@RunWith(JUnit4.class)
+@SuppressWarnings("serial")
+public class TypeManifestTest {
+
+  private static final String MANIFEST =
+      "java.util.List<String>\n\n  \nno.such.Class\r\nint[]\n";
+
+  @Test
+  public void readFromReader() {
+    try (Stream<TypeManifest.Entry> stream =
+        TypeManifest.read(new TypeParser(), new StringReader(MANIFEST))) {
+      assertManifest(stream.collect(Collectors.toList()));
+    }
+  }
+
+  @Test
+  public void readFromChannel() {
+    try (Stream<TypeManifest.Entry> stream = TypeManifest.read(
+        new TypeParser(),
+        Channels.newChannel(new ByteArrayInputStream(MANIFEST.getBytes(UTF_8))),
+        UTF_8)) {
+      assertManifest(stream.collect(Collectors.toList()));
+    }
+  }
+
+  @Test
+  public void mapFile() throws IOException {
+    Path file = Files.createTempFile("manifest", ".txt");
+    try {
+      Files.write(file, MANIFEST.getBytes(UTF_8));
+      try (Stream<TypeManifest.Entry> stream = TypeManifest.map(new TypeParser(), file)) {
+        assertManifest(stream.collect(Collectors.toList()));
+      }
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void mapFileInSmallWindows() throws IOException {
+    Path file = Files.createTempFile("manifest", ".txt");
+    try {
+      Files.write(file, MANIFEST.getBytes(UTF_8));
+      try (Stream<TypeManifest.Entry> stream = TypeManifest.map(new TypeParser(), file, 24)) {
+        assertManifest(stream.collect(Collectors.toList()));
+      }
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void mapFileWithCache() throws IOException {
+    Path file = Files.createTempFile("manifest", ".txt");
+    try {
+      Files.write(file, (MANIFEST + "java.util.Set<Thread>\n").getBytes(UTF_8));
+      TypeParser parser = new TypeParser().withCache(10);
+      try (Stream<TypeManifest.Entry> stream = TypeManifest.map(parser, file, 24)) {
+        List<TypeManifest.Entry> entries = stream.collect(Collectors.toList());
+        assertManifest(entries.subList(0, 3));
+        assertEquals("java.util.Set<Thread>", entries.get(3).getResult().getInput());
+        assertEquals(new TypeToken<Set<Thread>>() {}, entries.get(3).getResult().getType());
+        assertTrue(parser.cachedResults().containsKey("java.util.Set<Thread>"));
+      }
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void mapFileWithNonAsciiLine() throws IOException {
+    Path file = Files.createTempFile("manifest", ".txt");
+    try {
+      Files.write(file, "Integer\nno.such.Cl\u00e4ss\nString".getBytes(UTF_8));
+      try (Stream<TypeManifest.Entry> stream = TypeManifest.map(new TypeParser(), file, 16)) {
+        List<TypeManifest.Entry> entries = stream.collect(Collectors.toList());
+        assertEquals(3, entries.size());
+        assertEquals(TypeToken.of(Integer.class), entries.get(0).getResult().getType());
+        assertEquals("no.such.Cl\u00e4ss", entries.get(1).getResult().getInput());
+        assertFalse(entries.get(1).getResult().isSuccess());
+        assertEquals(TypeToken.of(String.class), entries.get(2).getResult().getType());
+      }
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test(expected = UncheckedIOException.class)
+  public void mapFileWithLineLongerThanWindow() throws IOException {
+    Path file = Files.createTempFile("manifest", ".txt");
+    try {
+      Files.write(file, MANIFEST.getBytes(UTF_8));
+      try (Stream<TypeManifest.Entry> stream = TypeManifest.map(new TypeParser(), file, 8)) {
+        stream.count();
+      }
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void emptyManifest() {
+    assertEquals(0, TypeManifest.read(new TypeParser(), new StringReader("")).count());
+  }
+
+  private static void assertManifest(List<TypeManifest.Entry> entries) {
+    assertEquals(3, entries.size());
+    assertEquals(1, entries.get(0).getLineNumber());
+    assertEquals(new TypeToken<List<String>>() {}, entries.get(0).getResult().getType());
+    assertEquals(4, entries.get(1).getLineNumber());
+    assertFalse(entries.get(1).getResult().isSuccess());
+    assertEquals("no.such.Class", entries.get(1).getResult().getInput());
+    assertEquals(5, entries.get(2).getLineNumber());
+    assertTrue(entries.get(2).getResult().isSuccess());
+    assertEquals(TypeToken.of(int[].class), entries.get(2).getResult().getType());
+  }
+}
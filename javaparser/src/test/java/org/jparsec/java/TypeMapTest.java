@@ -0,0 +1,61 @@
+package org.jparsec.java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.Serializable;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.google.common.reflect.TypeToken;
+
+@RunWith(JUnit4.class)
+public class TypeMapTest {
+
+  private final TypeParser parser = new TypeParser().withInterning();
+  private final TypeMap<String> handlers = new TypeMap<String>();
+
+  @Test
+  public void exactMatch() {
+    handlers.put(parser.parse("java.util.List<String>"), "strings");
+    assertEquals("strings", handlers.getExact(parser.parse("java.util.List<String>")));
+    assertEquals("strings", handlers.get(parser.parse("java.util.List<String>")));
+    assertNull(handlers.getExact(parser.parse("java.util.ArrayList<String>")));
+  }
+
+  @Test
+  public void mostSpecificSupertype() {
+    handlers.put(TypeToken.of(Object.class), "object");
+    handlers.put(parser.parse("java.util.Collection<?>"), "collection");
+    handlers.put(parser.parse("java.util.Collection<? extends Number>"), "numbers");
+    assertEquals("numbers", handlers.get(parser.parse("java.util.List<Integer>")));
+    assertEquals("collection", handlers.get(parser.parse("java.util.Set<String>")));
+    assertEquals("object", handlers.get(TypeToken.of(String.class)));
+  }
+
+  @Test
+  public void noMatch() {
+    handlers.put(parser.parse("java.util.Collection<? extends Number>"), "numbers");
+    assertNull(handlers.get(parser.parse("java.util.List<String>")));
+    assertNull(handlers.get(TypeToken.of(Integer.class)));
+  }
+
+  @Test
+  public void registrationInvalidatesLookups() {
+    handlers.put(parser.parse("java.util.Collection<?>"), "collection");
+    assertEquals("collection", handlers.get(parser.parse("java.util.List<Integer>")));
+    handlers.put(parser.parse("java.util.List<? extends Number>"), "numbers");
+    assertEquals("numbers", handlers.get(parser.parse("java.util.List<Integer>")));
+    handlers.remove(parser.parse("java.util.List<? extends Number>"));
+    assertEquals("collection", handlers.get(parser.parse("java.util.List<Integer>")));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void ambiguousSupertypes() {
+    handlers.put(TypeToken.of(Serializable.class), "serializable");
+    handlers.put(parser.parse("Comparable<?>"), "comparable");
+    handlers.get(TypeToken.of(Integer.class));
+  }
+}
@@ -1,15 +1,29 @@
 package org.jparsec.java;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.codehaus.jparsec.error.ParserException;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
 import com.google.common.reflect.TypeToken;
 
 @RunWith(JUnit4.class)
@@ -84,6 +98,93 @@ public class TypeParserTest {
     assertEquals(Nested.class, new TypeParser().parse(Nested.class.getName()).getType());
   }
 
+  @Test
+  public void memberTypeOfParameterizedType() {
+    TypeToken<?> type = new TypeToken<Outer<String>.Inner<Integer>>() {};
+    assertEquals(type, new TypeParser().parse(
+        "org.jparsec.java.TypeParserTest$Outer<String>.Inner<Integer>"));
+    assertEquals(type, new TypeParser().parse(
+        "org.jparsec.java.TypeParserTest$Outer<String> $Inner<Integer>"));
+    assertParser(type);
+    assertParser(new TypeToken<Outer<String>.Inner<Integer>.Deeper>() {});
+    assertParser(new TypeToken<Outer<int[]>.Plain.Generic<?>[]>() {});
+    assertEquals(new TypeToken<Outer<String>.Plain.Generic<Integer>>() {}, new TypeParser().parse(
+        "org.jparsec.java.TypeParserTest$Outer<String>.Plain.Generic<Integer>"));
+  }
+
+  @Test(expected = ParserException.class)
+  public void memberTypeNotFound() {
+    new TypeParser().parse("org.jparsec.java.TypeParserTest$Outer<String>.Missing");
+  }
+
+  @Test
+  public void boundsNotCheckedByDefault() {
+    assertEquals(Types.newParameterizedType(Enum.class, ImmutableList.of(String.class)),
+        new TypeParser().parse("Enum<String>").getType());
+  }
+
+  @Test
+  public void typeArgumentsWithinBounds() {
+    TypeParser parser = new TypeParser().withBoundsChecking();
+    assertEquals(new TypeToken<Enum<TimeUnit>>() {},
+        parser.parse("Enum<java.util.concurrent.TimeUnit>"));
+    assertEquals(new TypeToken<Bounded<Integer>>() {},
+        parser.parse("org.jparsec.java.TypeParserTest$Bounded<Integer>"));
+    assertEquals(new TypeToken<Bounded<?>>() {},
+        parser.parse("org.jparsec.java.TypeParserTest$Bounded<?>"));
+    assertEquals(new TypeToken<Map<String, List<? extends Number>>>() {},
+        parser.parse("java.util.Map<String, java.util.List<? extends Number>>"));
+    assertEquals(new TypeToken<Outer<Number>.Sub<Integer>>() {},
+        parser.parse("org.jparsec.java.TypeParserTest$Outer<Number>.Sub<Integer>"));
+  }
+
+  @Test
+  public void recursiveBoundNotSatisfied() {
+    TypeParser parser = new TypeParser().withBoundsChecking();
+    assertTrue(parseFailure(parser, "Enum<String>") instanceof IllegalArgumentException);
+    // The second time the outcome is remembered.
+    assertTrue(parseFailure(parser, "Enum<String>") instanceof IllegalArgumentException);
+  }
+
+  @Test
+  public void boundNotSatisfied() {
+    TypeParser parser = new TypeParser().withBoundsChecking();
+    assertTrue(parseFailure(parser, "org.jparsec.java.TypeParserTest$Bounded<String>")
+        instanceof IllegalArgumentException);
+    assertTrue(parseFailure(
+        parser, "java.util.List<org.jparsec.java.TypeParserTest$Bounded<String>>")
+        instanceof IllegalArgumentException);
+  }
+
+  @Test
+  public void wildcardBoundNotSatisfied() {
+    TypeParser parser = new TypeParser().withBoundsChecking();
+    assertTrue(parseFailure(parser, "Enum<? extends String>") instanceof IllegalArgumentException);
+    assertTrue(parseFailure(parser, "org.jparsec.java.TypeParserTest$Bounded<? extends String>")
+        instanceof IllegalArgumentException);
+    assertEquals(new TypeToken<Bounded<? extends Comparable<?>>>() {},
+        parser.parse("org.jparsec.java.TypeParserTest$Bounded<? extends Comparable<?>>"));
+    assertEquals(new TypeToken<Bounded<? extends Object>>() {},
+        parser.parse("org.jparsec.java.TypeParserTest$Bounded<? extends Object>"));
+    assertEquals(new TypeToken<Bounded<? super Integer>>() {},
+        parser.parse("org.jparsec.java.TypeParserTest$Bounded<? super Integer>"));
+  }
+
+  @Test
+  public void boundNotSatisfiedWhenNested() {
+    Throwable cause = parseFailure(
+        new TypeParser().withBoundsChecking(), "java.util.List<Enum<String>>");
+    assertEquals("java.lang.String isn't within bound java.lang.Enum<java.lang.String>"
+        + " of type parameter E of java.lang.Enum", cause.getMessage());
+  }
+
+  @Test
+  public void boundReferringToOwnerTypeNotSatisfied() {
+    assertTrue(parseFailure(new TypeParser().withBoundsChecking(),
+        "org.jparsec.java.TypeParserTest$Outer<Integer>.Sub<Number>")
+        instanceof IllegalArgumentException);
+  }
+
   @Test
   public void parameterizedWithWildcardTypeWithNoBound() {
     assertParser(new TypeToken<Iterable<?>>() {});
@@ -203,6 +304,275 @@ public class TypeParserTest {
     new TypeParser().parse(null);
   }
 
+  @Test
+  public void cachedParseReturnsSameResult() {
+    TypeParser parser = new TypeParser().withCache(10);
+    TypeToken<?> type = parser.parse("java.util.Map<String, ? extends Number>");
+    assertEquals(new TypeToken<Map<String, ? extends Number>>() {}, type);
+    assertSame(type, parser.parse("java.util.Map<String, ? extends Number>"));
+    CacheStats stats = parser.cacheStats();
+    assertEquals(1, stats.hitCount());
+    assertEquals(1, stats.missCount());
+  }
+
+  @Test
+  public void cacheEvictsWhenFull() {
+    TypeParser parser = new TypeParser().withCache(1);
+    parser.parse("Integer");
+    parser.parse("String");
+    assertEquals(1, parser.cacheStats().evictionCount());
+  }
+
+  @Test
+  public void cacheStatsAreEmptyWithoutCache() {
+    TypeParser parser = new TypeParser();
+    parser.parse("Integer");
+    assertEquals(0, parser.cacheStats().requestCount());
+  }
+
+  @Test(expected = ParserException.class)
+  public void cachedParseFailure() {
+    new TypeParser().withCache(10).parse("no.such.class");
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void cachedParseNullString() {
+    new TypeParser().withCache(10).parse(null);
+  }
+
+  @Test
+  public void interning() {
+    TypeParser parser = new TypeParser().withInterning();
+    TypeToken<?> type = parser.parse("java.util.Map<String, java.util.List<? extends Number>[]>");
+    assertEquals(new TypeToken<Map<String, List<? extends Number>[]>>() {}, type);
+    assertSame(type, parser.parse("java.util.Map<String,java.util.List<? extends Number>[]>"));
+    assertSame(type.getType(), new TypeParser().withInterning().withCache(10)
+        .parse("java.util.Map<String, java.util.List<? extends Number>[]>").getType());
+  }
+
+  @Test
+  public void constants() {
+    TypeToken<?> type = new TypeParser().parse("java.util.List<String>");
+    assertEquals(new TypeToken<List<String>>() {}, type);
+    assertSame(type, new TypeParser().parse("java.util.List<java.lang.String>"));
+    assertSame(type, new TypeParser().parse("java.util.List< String >"));
+    assertSame(type, new TypeParser().withCache(10).parse("java.util.List<String>"));
+    assertEquals(type, new TypeParser().withConstants(TypeConstants.none())
+        .parse("java.util.List<String>"));
+  }
+
+  @Test
+  public void userConstants() {
+    TypeToken<List<int[]>> constant = new TypeToken<List<int[]>>() {};
+    TypeParser parser =
+        new TypeParser().withConstants(TypeConstants.jdk().plus(constant));
+    assertSame(constant, parser.parse("java.util.List<int[]>"));
+    assertSame(constant, parser.parse("java.util.List<int []>"));
+    assertEquals(new TypeToken<List<String>>() {}, parser.parse("java.util.List<String>"));
+  }
+
+  @Test
+  public void singleTypeImports() {
+    TypeParser parser = new TypeParser().withImports("java.util.Map", "java.util.List");
+    assertEquals(new TypeToken<Map<String, List<Integer>>>() {},
+        parser.parse("Map<String, List<Integer>>"));
+    assertEquals(new TypeToken<Map.Entry<String, Integer>>() {},
+        parser.parse("Map.Entry<String, Integer>"));
+    assertEquals(new TypeToken<Set<String>>() {}, parser.parse("java.util.Set<String>"));
+  }
+
+  @Test
+  public void memberClassImport() {
+    assertEquals(new TypeToken<Map.Entry<String, Integer>>() {},
+        new TypeParser().withImports("java.util.Map.Entry").parse("Entry<String, Integer>"));
+  }
+
+  @Test
+  public void onDemandImports() {
+    TypeParser parser = new TypeParser().withImports("java.util.*", "java.util.concurrent.*");
+    assertEquals(new TypeToken<Map<String, BlockingQueue<Long>>>() {},
+        parser.parse("Map<String, BlockingQueue<Long>>"));
+    assertEquals(new TypeToken<List<String>>() {}, parser.parse("List<String>"));
+  }
+
+  @Test
+  public void singleTypeImportShadowsOnDemandImport() {
+    assertEquals(TypeToken.of(java.awt.List.class),
+        new TypeParser().withImports("java.util.*", "java.awt.List").parse("List"));
+  }
+
+  @Test
+  public void ambiguousOnDemandImport() {
+    Throwable cause = parseFailure(
+        new TypeParser().withImports("java.util.*", "java.awt.*"), "List");
+    assertTrue(cause instanceof IllegalArgumentException);
+  }
+
+  @Test
+  public void notImported() {
+    Throwable cause = parseFailure(new TypeParser().withImports("java.util.Map"), "List");
+    assertTrue(cause instanceof UnresolvedClassException);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unresolvedImport() {
+    new TypeParser().withImports("java.util.NoSuchClass");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void conflictingImports() {
+    new TypeParser().withImports("java.util.List", "java.awt.List");
+  }
+
+  @Test
+  public void parseRegion() {
+    assertEquals(new TypeToken<List<String>>() {},
+        new TypeParser().parse("type: java.util.List<String>;", 6, 28));
+    assertEquals(new TypeToken<List<String>>() {},
+        new TypeParser().withCache(10).parse("type: java.util.List<String>;", 6, 28));
+    assertEquals(TypeToken.of(int[].class),
+        new TypeParser().parse("xint[]x".toCharArray(), 1, 5));
+  }
+
+  @Test
+  public void parseRegionErrorLocation() {
+    for (TypeParser parser : ImmutableList.of(new TypeParser(), new TypeParser().withCache(10))) {
+      try {
+        parser.parse("line 1\nx: &String", 10, 17);
+        fail();
+      } catch (ParserException e) {
+        assertEquals(2, e.getLocation().line);
+        assertEquals(4, e.getLocation().column);
+      }
+      try {
+        parser.parse("line 1\nx: no.such.Class".toCharArray(), 10, 13);
+        fail();
+      } catch (ParserException e) {
+        assertTrue(e.getCause() instanceof UnresolvedClassException);
+        assertEquals(2, e.getLocation().line);
+        assertEquals(4, e.getLocation().column);
+      }
+    }
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void parseRegionOutOfBounds() {
+    new TypeParser().parse("String", 1, 7);
+  }
+
+  @Test
+  public void parseAll() {
+    List<ParseResult> results =
+        new TypeParser().parseAll("Integer", "no.such.Class", "int[]", "Integer");
+    assertEquals(4, results.size());
+    assertEquals(TypeToken.of(Integer.class), results.get(0).getType());
+    assertFalse(results.get(1).isSuccess());
+    assertEquals("no.such.Class", results.get(1).getInput());
+    assertEquals(TypeToken.of(int[].class), results.get(2).getType());
+    assertSame(results.get(0), results.get(3));
+  }
+
+  @Test
+  public void parseAllInParallel() {
+    List<String> strings = new ArrayList<String>();
+    for (int i = 0; i < 1000; i++) {
+      strings.add(i % 2 == 0 ? "java.util.List<Integer>" : "java.util.Map<String, int[]>");
+      strings.add("Integer" + i);
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<ParseResult> results = new TypeParser().parseAll(strings, executor);
+      assertEquals(strings.size(), results.size());
+      for (int i = 0; i < strings.size(); i++) {
+        assertEquals(strings.get(i), results.get(i).getInput());
+      }
+      assertEquals(new TypeToken<List<Integer>>() {}, results.get(0).getType());
+      assertEquals(new TypeToken<Map<String, int[]>>() {}, results.get(2).getType());
+      assertFalse(results.get(1).isSuccess());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void parseAllNullString() {
+    new TypeParser().parseAll("Integer", null);
+  }
+
+  @Test
+  public void unresolvedClassIsReported() {
+    Throwable cause = parseFailure(new TypeParser(), "no.such.Class");
+    assertTrue(cause instanceof UnresolvedClassException);
+    assertEquals("no.such.Class", ((UnresolvedClassException) cause).getClassName());
+    assertEquals(0, cause.getStackTrace().length);
+  }
+
+  @Test
+  public void unresolvedClassSearchedOnce() {
+    final List<String> searched = new ArrayList<String>();
+    ClassLoader loader = new ClassLoader(null) {
+      @Override protected Class<?> loadClass(String name, boolean resolve)
+          throws ClassNotFoundException {
+        searched.add(name);
+        return super.loadClass(name, resolve);
+      }
+    };
+    Throwable cause = parseFailure(new TypeParser(loader), "no.such.Class");
+    assertTrue(cause instanceof UnresolvedClassException);
+    assertEquals(ImmutableList.of("no.such.Class"), searched);
+  }
+
+  @Test
+  public void negativeCacheUsedByImports() {
+    final List<String> searched = new ArrayList<String>();
+    ClassLoader loader = new ClassLoader(null) {
+      @Override protected Class<?> loadClass(String name, boolean resolve)
+          throws ClassNotFoundException {
+        searched.add(name);
+        return super.loadClass(name, resolve);
+      }
+    };
+    TypeParser parser = new TypeParser(loader).withImports("java.util.*").withNegativeCache(10);
+    assertTrue(parseFailure(parser, "no.such.Class") instanceof UnresolvedClassException);
+    assertTrue(parseFailure(parser, "no.such.Class") instanceof UnresolvedClassException);
+    assertEquals(1, Collections.frequency(searched, "no.such.Class"));
+  }
+
+  @Test
+  public void negativeCacheRemembersUnresolvedClass() {
+    TypeParser parser = new TypeParser().withNegativeCache(10);
+    assertSame(parseFailure(parser, "no.such.Class"), parseFailure(parser, "no.such.Class"));
+  }
+
+  @Test
+  public void unresolvedClassReportedWithoutStackTrace() {
+    TypeParser parser = new TypeParser().withNegativeCache(10);
+    for (int i = 0; i < 2; i++) {
+      try {
+        parser.parse("java.util.List<no.such.Class>");
+        fail();
+      } catch (ParserException e) {
+        assertEquals(0, e.getStackTrace().length);
+      }
+    }
+  }
+
+  @Test
+  public void expiringNegativeCacheRemembersUnresolvedClass() {
+    TypeParser parser = new TypeParser().withNegativeCache(10, 1, TimeUnit.HOURS);
+    assertSame(parseFailure(parser, "no.such.Class"), parseFailure(parser, "no.such.Class"));
+  }
+
+  private static Throwable parseFailure(TypeParser parser, String string) {
+    try {
+      parser.parse(string);
+    } catch (ParserException e) {
+      return Throwables.getRootCause(e);
+    }
+    fail(string + " should have failed to parse");
+    return null;
+  }
+
   private static void assertParser(TypeToken<?> type) {
     assertEquals(type, new TypeParser().parse(type.toString()));
   }
@@ -214,4 +584,14 @@ public class TypeParserTest {
   private interface Bounded<T extends Number> {}
 
   private static final class Nested {}
+
+  private static class Outer<T> {
+    class Inner<U> {
+      class Deeper {}
+    }
+    class Plain {
+      class Generic<V> {}
+    }
+    class Sub<S extends T> {}
+  }
 }
@@ -0,0 +1,172 @@
+package org.jparsec.java;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.google.common.reflect.TypeToken;
+
+@RunWith(JUnit4.class)
+public class TypeSnapshotTest {
+
+  private static final List<String> STRINGS = Arrays.asList(
+      "java.util.Map<java.lang.String, java.util.List<? extends Number>>",
+      "java.util.List<int[]>[]",
+      "java.util.Map$Entry<? super Integer, ?>",
+      "java.lang.Comparable<java.lang.String>");
+
+  @Test
+  public void loadedResultsAreNotParsedAgain() throws IOException {
+    Path file = Files.createTempFile("snapshot", ".bin");
+    try {
+      TypeParser parser = new TypeParser().withCache(100);
+      for (String string : STRINGS) {
+        parser.parse(string);
+      }
+      TypeSnapshot.save(parser, file, 42);
+
+      TypeParser restored = new TypeParser().withCache(100);
+      assertEquals(STRINGS.size(), TypeSnapshot.load(restored, file, 42));
+      for (String string : STRINGS) {
+        assertEquals(parser.parse(string), restored.parse(string));
+      }
+      assertEquals(STRINGS.size(), restored.cacheStats().hitCount());
+      assertEquals(0, restored.cacheStats().missCount());
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void staleSnapshotIsIgnored() throws IOException {
+    Path file = Files.createTempFile("snapshot", ".bin");
+    try {
+      TypeParser parser = new TypeParser().withCache(100);
+      parser.parse("java.util.List<Integer[]>");
+      TypeSnapshot.save(parser, file, 42);
+
+      TypeParser restored = new TypeParser().withCache(100);
+      assertEquals(0, TypeSnapshot.load(restored, file, 43));
+      restored.parse("java.util.List<Integer[]>");
+      assertEquals(1, restored.cacheStats().missCount());
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void snapshotWithOtherImportsIsIgnored() throws IOException {
+    Path file = Files.createTempFile("snapshot", ".bin");
+    try {
+      TypeParser parser = new TypeParser().withImports("java.util.*").withCache(100);
+      parser.parse("List<Integer[]>");
+      TypeSnapshot.save(parser, file, 42);
+
+      assertEquals(0, TypeSnapshot.load(new TypeParser().withCache(100), file, 42));
+      assertEquals(0, TypeSnapshot.load(
+          new TypeParser().withImports("java.awt.*").withCache(100), file, 42));
+      assertEquals(1, TypeSnapshot.load(
+          new TypeParser().withImports("java.util.*").withCache(100), file, 42));
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void taggedWithClassIndexFingerprint() throws IOException {
+    Path root = Files.createTempDirectory("snapshot");
+    try {
+      Path file = root.resolve("snapshot.bin");
+      ClassIndex index = ClassIndex.open(
+          root.resolve("index"), Arrays.asList(Files.createDirectory(root.resolve("classes"))));
+      TypeParser parser = new TypeParser().withClassIndex(index).withCache(100);
+      parser.parse("java.util.List<Integer[]>");
+      TypeSnapshot.save(parser, file);
+
+      assertEquals(1, TypeSnapshot.load(
+          new TypeParser().withClassIndex(index).withCache(100), file, index.fingerprint()));
+      assertEquals(1,
+          TypeSnapshot.load(new TypeParser().withClassIndex(index).withCache(100), file));
+    } finally {
+      delete(root);
+    }
+  }
+
+  @Test
+  public void snapshotWithIncompatibleTypeIsIgnored() throws IOException {
+    Path file = Files.createTempFile("snapshot", ".bin");
+    try {
+      // As if Map had one type parameter when the snapshot was taken.
+      ParameterizedType stale = new ParameterizedType() {
+        @Override public Type getRawType() {
+          return Map.class;
+        }
+
+        @Override public Type[] getActualTypeArguments() {
+          return new Type[] {String.class};
+        }
+
+        @Override public Type getOwnerType() {
+          return null;
+        }
+      };
+      TypeParser parser = new TypeParser().withCache(100);
+      parser.cachedResults().put("java.util.Map<String>", TypeToken.of(stale));
+      TypeSnapshot.save(parser, file, 42);
+
+      assertEquals(0, TypeSnapshot.load(new TypeParser().withCache(100), file, 42));
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void missingSnapshotIsIgnored() throws IOException {
+    Path file = Files.createTempFile("snapshot", ".bin");
+    Files.delete(file);
+    assertEquals(0, TypeSnapshot.load(new TypeParser().withCache(100), file, 42));
+  }
+
+  @Test
+  public void invalidSnapshot() throws IOException {
+    Path file = Files.createTempFile("snapshot", ".bin");
+    try {
+      Files.write(file, "java.util.List<String>".getBytes(UTF_8));
+      TypeSnapshot.load(new TypeParser().withCache(100), file, 42);
+      fail();
+    } catch (IOException expected) {
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void parserWithoutCache() throws IOException {
+    TypeSnapshot.save(new TypeParser(), Paths.get("snapshot.bin"), 42);
+  }
+
+  private static void delete(Path root) throws IOException {
+    try (Stream<Path> files = Files.walk(root)) {
+      for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+        Files.delete(file);
+      }
+    }
+  }
+}
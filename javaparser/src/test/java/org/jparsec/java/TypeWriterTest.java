@@ -0,0 +1,89 @@
+package org.jparsec.java;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.reflect.TypeToken;
+
+@RunWith(JUnit4.class)
+@SuppressWarnings("serial")
+public class TypeWriterTest {
+
+  private final TypeParser parser = new TypeParser();
+
+  @Test
+  public void writtenTypes() {
+    assertEquals("int", TypeWriter.toString(int.class));
+    assertEquals("java.lang.String[][]", TypeWriter.toString(String[][].class));
+    assertEquals("java.util.Map<java.lang.String, ? extends java.lang.Number>",
+        TypeWriter.toString(new TypeToken<Map<String, ? extends Number>>() {}.getType()));
+    assertEquals("java.util.List<? super int[]>[]",
+        TypeWriter.toString(new TypeToken<List<? super int[]>[]>() {}.getType()));
+    assertEquals("org.jparsec.java.TypeWriterTest$Outer<?>.Inner<java.lang.Integer>.Deeper",
+        TypeWriter.toString(new TypeToken<Outer<?>.Inner<Integer>.Deeper>() {}.getType()));
+  }
+
+  @Test
+  public void roundTrip() {
+    assertRoundTrip(TypeToken.of(long[].class));
+    assertRoundTrip(TypeToken.of(char.class));
+    assertRoundTrip(TypeToken.of(char[].class));
+    assertRoundTrip(new TypeToken<List<char[]>>() {});
+    assertRoundTrip(TypeToken.of(Map.Entry.class));
+    assertRoundTrip(new TypeToken<Map.Entry<String, List<?>>>() {});
+    assertRoundTrip(new TypeToken<List<String>[][]>() {});
+    assertRoundTrip(new TypeToken<Outer<String>.Inner<Integer>>() {});
+    assertRoundTrip(new TypeToken<Outer<String>.Inner<Integer>.Deeper>() {});
+    assertRoundTrip(TypeToken.of(
+        Types.newParameterizedType(String.class, ImmutableList.<Class<?>>of())));
+  }
+
+  @Test
+  public void appendable() throws IOException {
+    StringWriter writer = new StringWriter();
+    TypeWriter.appendTo(writer, new TypeToken<List<String>>() {}.getType()).append(';');
+    assertEquals("java.util.List<java.lang.String>;", writer.toString());
+  }
+
+  @Test
+  public void appendToStringBuilder() {
+    StringBuilder builder = new StringBuilder("type: ");
+    TypeWriter.appendTo(builder, Integer.class);
+    assertEquals("type: java.lang.Integer", builder.toString());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void defaultPackageClassRejected() throws ClassNotFoundException {
+    TypeWriter.toString(Class.forName("DefaultPackageFixture"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void defaultPackageRawTypeRejected() throws ClassNotFoundException {
+    TypeWriter.toString(Types.newParameterizedType(
+        Class.forName("DefaultPackageFixture"), ImmutableList.<Class<?>>of(String.class)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void typeVariableRejected() {
+    TypeWriter.toString(List.class.getTypeParameters()[0]);
+  }
+
+  private void assertRoundTrip(TypeToken<?> type) {
+    assertEquals(type, parser.parse(TypeWriter.toString(type.getType())));
+  }
+
+  private static class Outer<T> {
+    class Inner<U> {
+      class Deeper {}
+    }
+  }
+}
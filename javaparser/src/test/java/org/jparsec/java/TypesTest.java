@@ -0,0 +1,172 @@
+package org.jparsec.java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.reflect.TypeToken;
+
+@RunWith(JUnit4.class)
+@SuppressWarnings("serial")
+public class TypesTest {
+
+  @Test
+  public void parameterizedTypeConsistentWithJdk() {
+    assertConsistentWithJdk(new TypeToken<Map<String, ? extends Number>>() {},
+        Types.newParameterizedType(Map.class,
+            ImmutableList.of(String.class, Types.subtypeOf(Number.class))));
+    assertConsistentWithJdk(new TypeToken<List<? super int[]>>() {},
+        Types.newParameterizedType(List.class, ImmutableList.of(Types.supertypeOf(int[].class))));
+  }
+
+  @Test
+  public void nestedParameterizedTypeHasEnclosingClassAsOwner() {
+    ParameterizedType type = Types.newParameterizedType(
+        Map.Entry.class, ImmutableList.of(String.class, Integer.class));
+    assertEquals(Map.class, type.getOwnerType());
+    assertConsistentWithJdk(new TypeToken<Map.Entry<String, Integer>>() {}, type);
+  }
+
+  @Test
+  public void parameterizedTypeWithOwnerConsistentWithJdk() {
+    ParameterizedType owner =
+        Types.newParameterizedType(Outer.class, ImmutableList.of(String.class));
+    ParameterizedType inner = Types.newParameterizedTypeWithOwner(
+        owner, Outer.Inner.class, ImmutableList.of(Integer.class));
+    assertEquals(owner, inner.getOwnerType());
+    assertConsistentWithJdk(new TypeToken<Outer<String>.Inner<Integer>>() {}, inner);
+    assertConsistentWithJdk(new TypeToken<Outer<String>.Inner<Integer>.Deeper>() {},
+        Types.newParameterizedTypeWithOwner(
+            inner, Outer.Inner.Deeper.class, ImmutableList.<Type>of()));
+  }
+
+  @Test
+  public void nullOwnerType() {
+    assertEquals(
+        Types.newParameterizedType(Map.Entry.class, ImmutableList.of(String.class, Integer.class)),
+        Types.newParameterizedTypeWithOwner(
+            null, Map.Entry.class, ImmutableList.of(String.class, Integer.class)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void ownerTypeDoesNotEncloseRawType() {
+    Types.newParameterizedTypeWithOwner(
+        Types.newParameterizedType(List.class, ImmutableList.of(String.class)),
+        Outer.Inner.class, ImmutableList.of(Integer.class));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void staticMemberTypeWithParameterizedOwner() {
+    Types.newParameterizedTypeWithOwner(
+        Types.newParameterizedType(Outer.class, ImmutableList.of(String.class)),
+        Outer.Nested.class, ImmutableList.of(Integer.class));
+  }
+
+  @Test
+  public void topLevelParameterizedTypeHasNoOwner() {
+    assertNull(Types.newParameterizedType(List.class, ImmutableList.of(String.class))
+        .getOwnerType());
+  }
+
+  @Test
+  public void wildcardTypeConsistentWithJdk() {
+    assertConsistentWithJdk(new TypeToken<List<?>>() {}, Types.newParameterizedType(
+        List.class, ImmutableList.of(Types.subtypeOf(Object.class))));
+    assertConsistentWithJdk(new TypeToken<List<? super String>>() {}, Types.newParameterizedType(
+        List.class, ImmutableList.of(Types.supertypeOf(String.class))));
+  }
+
+  @Test
+  public void genericArrayTypeConsistentWithJdk() {
+    assertConsistentWithJdk(new TypeToken<List<String>[]>() {}, Types.newArrayType(
+        Types.newParameterizedType(List.class, ImmutableList.of(String.class))));
+  }
+
+  @Test
+  public void arrayOfClassIsClass() {
+    assertEquals(String[].class, Types.newArrayType((Type) String.class));
+  }
+
+  @Test
+  public void arrayOfWildcardIsWildcard() {
+    assertEquals(
+        Types.subtypeOf(Object[].class), Types.newArrayType(Types.subtypeOf(Object.class)));
+    assertEquals(Types.supertypeOf(String[].class),
+        Types.newArrayType(Types.supertypeOf(String.class)));
+  }
+
+  @Test
+  public void returnedArraysAreCopies() {
+    ParameterizedType type = Types.newParameterizedType(List.class, ImmutableList.of(String.class));
+    type.getActualTypeArguments()[0] = Integer.class;
+    assertEquals(String.class, type.getActualTypeArguments()[0]);
+  }
+
+  @Test
+  public void internReturnsCanonicalInstance() {
+    Type type1 = Types.newParameterizedType(
+        Map.class, ImmutableList.of(String.class, Types.subtypeOf(Number.class)));
+    Type type2 = Types.newParameterizedType(
+        Map.class, ImmutableList.of(String.class, Types.subtypeOf(Number.class)));
+    assertNotSame(type1, type2);
+    assertSame(Types.intern(type1), Types.intern(type2));
+    assertEquals(type1, Types.intern(type1));
+  }
+
+  @Test
+  public void internInternsComponents() {
+    Type jdkType = new TypeToken<List<List<? extends Number>[]>>() {}.getType();
+    ParameterizedType interned = (ParameterizedType) Types.intern(jdkType);
+    assertEquals(jdkType, interned);
+    Type component = Types.newArrayType(Types.newParameterizedType(
+        List.class, ImmutableList.of(Types.subtypeOf(Number.class))));
+    assertSame(Types.intern(component), interned.getActualTypeArguments()[0]);
+  }
+
+  @Test
+  public void internClass() {
+    assertSame(String.class, Types.intern(String.class));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void primitiveTypeArgument() {
+    Types.newParameterizedType(List.class, ImmutableList.of(int.class));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void primitiveWildcardBound() {
+    Types.subtypeOf(int.class);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void wrongNumberOfTypeArguments() {
+    Types.newParameterizedType(Map.class, ImmutableList.of(String.class));
+  }
+
+  private static class Outer<T> {
+    class Inner<U> {
+      class Deeper {}
+    }
+    static class Nested<U> {}
+  }
+
+  private static void assertConsistentWithJdk(TypeToken<?> jdk, Type type) {
+    assertEquals(jdk.getType(), type);
+    assertEquals(type, jdk.getType());
+    assertEquals(jdk.getType().hashCode(), type.hashCode());
+    assertEquals(jdk.getType().toString(), type.toString());
+    assertTrue(jdk.getType().getClass() != type.getClass());
+  }
+}
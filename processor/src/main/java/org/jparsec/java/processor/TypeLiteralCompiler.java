@@ -0,0 +1,343 @@
+package org.jparsec.java.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Compiles a type expression in the syntax {@code TypeParser} accepts to a Java expression that
+ * builds the same type through the {@code Types} factories, resolving class names through
+ * {@link Elements} instead of loading classes.
+ *
+ * <p>Names are resolved and types are checked the same way as by a default {@code TypeParser}, so
+ * that an expression compiles if and only if it would parse at run time. In addition, the classes
+ * must be accessible from the generated class.
+ */
+final class TypeLiteralCompiler {
+
+  private static final String TYPES = "org.jparsec.java.Types";
+  private static final String TYPE_LIST = "java.util.Arrays.<java.lang.reflect.Type>asList";
+
+  /** The same primitive types as those {@code TypeParser} resolves. */
+  private static final Set<String> PRIMITIVE_TYPES = ImmutableSet.of(
+      "void", "boolean", "byte", "short", "char", "int", "long", "float", "double");
+
+  private static final ImmutableMap<Character, String> PRIMITIVE_DESCRIPTORS =
+      ImmutableMap.<Character, String>builder()
+          .put('Z', "boolean").put('B', "byte").put('S', "short").put('C', "char").put('I', "int")
+          .put('J', "long").put('F', "float").put('D', "double")
+          .build();
+
+  /** A compiled type. */
+  private static final class Compiled {
+    /** The Java expression evaluating to the type. */
+    final String expression;
+
+    /** The canonical name of the type if it's a class or a primitive type, else null. */
+    final String className;
+
+    /** The declared class, or the raw class of a parameterized type, else null. */
+    final TypeElement element;
+
+    Compiled(String expression, String className, TypeElement element) {
+      this.expression = expression;
+      this.className = className;
+      this.element = element;
+    }
+
+    static Compiled ofClass(String className, TypeElement element) {
+      return new Compiled(className + ".class", className, element);
+    }
+
+    boolean isPrimitive() {
+      return className != null && element == null && PRIMITIVE_TYPES.contains(className);
+    }
+  }
+
+  private final Elements elements;
+  private final String packageName;
+  private final String literal;
+  private int index;
+
+  private TypeLiteralCompiler(Elements elements, String packageName, String literal) {
+    this.elements = elements;
+    this.packageName = packageName;
+    this.literal = literal;
+  }
+
+  /**
+   * Compiles {@code literal} to a Java expression evaluating to a {@code java.lang.reflect.Type},
+   * to be used in a class of the package {@code packageName}.
+   *
+   * @throws IllegalArgumentException if {@code literal} is malformed, names a class that doesn't
+   *         exist or isn't accessible, or has the wrong number of type arguments
+   */
+  static String compile(Elements elements, String packageName, String literal) {
+    TypeLiteralCompiler compiler = new TypeLiteralCompiler(elements, packageName, literal);
+    Compiled type = compiler.type();
+    compiler.skipWhitespace();
+    if (compiler.index != literal.length()) throw compiler.unexpected();
+    return type.expression;
+  }
+
+  private Compiled type() {
+    Compiled type;
+    skipWhitespace();
+    if (skip('?')) {
+      type = wildcardType();
+    } else if (skip('[')) {
+      type = internalArrayClass();
+    } else {
+      String name = qualifiedName();
+      type = rawType(name);
+      if (peek('<')) type = parameterizedType(type, name);
+    }
+    while (skip('[')) {
+      expect(']');
+      type = arrayOf(type);
+    }
+    return type;
+  }
+
+  private Compiled wildcardType() {
+    skipWhitespace();
+    String keyword = peekIdentifier();
+    if (keyword.equals("extends") || keyword.equals("super")) {
+      index += keyword.length();
+      Compiled bound = referenceType(type());
+      String factory = keyword.equals("extends") ? ".subtypeOf(" : ".supertypeOf(";
+      return new Compiled(TYPES + factory + bound.expression + ")", null, null);
+    }
+    return new Compiled(TYPES + ".subtypeOf(java.lang.Object.class)", null, null);
+  }
+
+  private Compiled parameterizedType(Compiled raw, String name) {
+    if (raw.element == null) {
+      throw new IllegalArgumentException(name + " can't have type arguments");
+    }
+    Compiled type = new Compiled(
+        TYPES + ".newParameterizedType(" + raw.className + ".class, " + typeArgs(raw.element)
+            + ")",
+        null, raw.element);
+    for (;;) {
+      skipWhitespace();
+      List<String> names = new ArrayList<String>(1);
+      if (skip('.')) {
+        skipWhitespace();
+        names.add(identifier());
+      } else if (peekIdentifier().startsWith("$")) {
+        // Written as Outer<String>$Inner$Deeper by Type.toString().
+        String memberNames = identifier();
+        for (String memberName : memberNames.substring(1).split("\\$", -1)) {
+          names.add(memberName);
+        }
+      } else {
+        return type;
+      }
+      for (int i = 0; i < names.size(); i++) {
+        TypeElement member = memberClass(type.element, names.get(i));
+        String typeArgs;
+        if (i == names.size() - 1 && peek('<')) {
+          typeArgs = typeArgs(member);
+        } else {
+          checkArity(member, 0);
+          typeArgs = TYPE_LIST + "()";
+        }
+        type = new Compiled(
+            TYPES + ".newParameterizedTypeWithOwner(" + type.expression + ", "
+                + member.getQualifiedName() + ".class, " + typeArgs + ")",
+            null, member);
+      }
+    }
+  }
+
+  /** Parses type arguments for {@code raw} from the {@code <} up to the {@code >}. */
+  private String typeArgs(TypeElement raw) {
+    expect('<');
+    StringBuilder typeArgs = new StringBuilder(TYPE_LIST).append('(');
+    int count = 0;
+    skipWhitespace();
+    if (!skip('>')) {
+      do {
+        if (count++ > 0) typeArgs.append(", ");
+        typeArgs.append(referenceType(type()).expression);
+        skipWhitespace();
+      } while (skip(','));
+      expect('>');
+    }
+    checkArity(raw, count);
+    return typeArgs.append(')').toString();
+  }
+
+  private static void checkArity(TypeElement raw, int count) {
+    int expected = raw.getTypeParameters().size();
+    if (expected != count) {
+      throw new IllegalArgumentException(
+          raw.getQualifiedName() + " expects " + expected + " type arguments, not " + count);
+    }
+  }
+
+  private TypeElement memberClass(TypeElement owner, String name) {
+    for (Element element : owner.getEnclosedElements()) {
+      if ((element.getKind().isClass() || element.getKind().isInterface())
+          && element.getSimpleName().contentEquals(name)) {
+        TypeElement member = (TypeElement) element;
+        if (member.getModifiers().contains(Modifier.STATIC)) {
+          throw new IllegalArgumentException("Static " + member.getQualifiedName()
+              + " can't be a member of a parameterized type");
+        }
+        return checkAccessible(member);
+      }
+    }
+    throw new IllegalArgumentException(
+        "Cannot find member class " + name + " of " + owner.getQualifiedName());
+  }
+
+  /** Parses an internal array class name such as {@code [[Ljava.lang.String;} after the [. */
+  private Compiled internalArrayClass() {
+    StringBuilder brackets = new StringBuilder("[]");
+    skipWhitespace();
+    while (skip('[')) {
+      brackets.append("[]");
+      skipWhitespace();
+    }
+    String name = qualifiedName();
+    String componentType;
+    if (name.length() == 1 && PRIMITIVE_DESCRIPTORS.containsKey(name.charAt(0))) {
+      componentType = PRIMITIVE_DESCRIPTORS.get(name.charAt(0));
+    } else if (name.startsWith("L") && name.endsWith(";")) {
+      componentType =
+          resolveClass(name.substring(1, name.length() - 1)).getQualifiedName().toString();
+    } else {
+      throw new IllegalArgumentException("Invalid array class internal name: [" + name);
+    }
+    return Compiled.ofClass(componentType + brackets, null);
+  }
+
+  private Compiled arrayOf(Compiled componentType) {
+    if ("void".equals(componentType.className)) {
+      throw new IllegalArgumentException("Array of void");
+    }
+    if (componentType.className != null) {
+      return Compiled.ofClass(componentType.className + "[]", null);
+    }
+    return new Compiled(TYPES + ".newArrayType(" + componentType.expression + ")", null, null);
+  }
+
+  /** Resolves {@code name} as written in a type expression to a primitive type or a class. */
+  private Compiled rawType(String name) {
+    if (PRIMITIVE_TYPES.contains(name)) {
+      return Compiled.ofClass(name, null);
+    }
+    TypeElement element = resolveClass(name.indexOf('.') < 0 ? "java.lang." + name : name);
+    return Compiled.ofClass(element.getQualifiedName().toString(), element);
+  }
+
+  /** Resolves the class with binary name {@code binaryName}. */
+  private TypeElement resolveClass(String binaryName) {
+    TypeElement element = elements.getTypeElement(binaryName.replace('$', '.'));
+    if (element == null) {
+      throw new IllegalArgumentException("Cannot find class " + binaryName);
+    }
+    String actualBinaryName = elements.getBinaryName(element).toString();
+    if (!actualBinaryName.equals(binaryName)) {
+      throw new IllegalArgumentException(
+          "Cannot find class " + binaryName + "; member classes are named by their binary names"
+              + " such as " + actualBinaryName);
+    }
+    return checkAccessible(element);
+  }
+
+  private TypeElement checkAccessible(TypeElement element) {
+    for (Element e = element; e instanceof TypeElement; e = e.getEnclosingElement()) {
+      Set<Modifier> modifiers = e.getModifiers();
+      if (modifiers.contains(Modifier.PRIVATE)
+          || (!modifiers.contains(Modifier.PUBLIC)
+              && !elements.getPackageOf(e).getQualifiedName().contentEquals(packageName))) {
+        throw new IllegalArgumentException(
+            ((TypeElement) e).getQualifiedName() + " isn't accessible from package " + packageName);
+      }
+    }
+    return element;
+  }
+
+  /** Checks that {@code type}, a type argument or wildcard bound, isn't primitive. */
+  private static Compiled referenceType(Compiled type) {
+    if (type.isPrimitive()) {
+      throw new IllegalArgumentException(
+          "Primitive type " + type.className + " can't be a type argument or bound");
+    }
+    return type;
+  }
+
+  private String qualifiedName() {
+    StringBuilder name = new StringBuilder(identifier());
+    while (skip('.')) {
+      name.append('.').append(identifier());
+    }
+    return name.toString();
+  }
+
+  private String identifier() {
+    skipWhitespace();
+    String identifier = peekIdentifier();
+    if (identifier.isEmpty() || identifier.equals("extends") || identifier.equals("super")) {
+      throw unexpected();
+    }
+    index += identifier.length();
+    return identifier;
+  }
+
+  /** Returns the identifier at the current index, or empty if there's none. */
+  private String peekIdentifier() {
+    if (index == literal.length() || !Character.isJavaIdentifierStart(literal.charAt(index))) {
+      return "";
+    }
+    int end = index + 1;
+    // TypeParser allows ';' in identifiers for internal array class names.
+    while (end < literal.length()
+        && (Character.isJavaIdentifierPart(literal.charAt(end)) || literal.charAt(end) == ';')) {
+      end++;
+    }
+    return literal.substring(index, end);
+  }
+
+  /** Skips whitespace, and returns the index before it. */
+  private int skipWhitespace() {
+    int from = index;
+    while (index < literal.length() && Character.isWhitespace(literal.charAt(index))) {
+      index++;
+    }
+    return from;
+  }
+
+  private boolean peek(char c) {
+    skipWhitespace();
+    return index < literal.length() && literal.charAt(index) == c;
+  }
+
+  private boolean skip(char c) {
+    if (!peek(c)) return false;
+    index++;
+    return true;
+  }
+
+  private void expect(char c) {
+    if (!skip(c)) throw unexpected();
+  }
+
+  private IllegalArgumentException unexpected() {
+    skipWhitespace();
+    return new IllegalArgumentException(index == literal.length()
+        ? "Unexpected end of type expression"
+        : "Unexpected '" + literal.charAt(index) + "' at index " + index);
+  }
+}
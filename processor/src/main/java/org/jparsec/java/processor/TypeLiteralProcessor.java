@@ -0,0 +1,123 @@
+package org.jparsec.java.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+import org.jparsec.java.TypeLiteral;
+
+/**
+ * Checks the type expressions of {@link TypeLiteral} constants during compilation, and generates
+ * a {@code Foo_TypeLiterals} class with their precompiled {@code TypeToken}s for each class
+ * {@code Foo} that has such constants.
+ *
+ * <p>A malformed expression, or one naming a class that doesn't exist, is reported as an error on
+ * the constant, and fails the compilation.
+ */
+@SupportedAnnotationTypes("org.jparsec.java.TypeLiteral")
+public final class TypeLiteralProcessor extends AbstractProcessor {
+
+  /** Suffix of the names of the generated classes. */
+  static final String SUFFIX = "_TypeLiterals";
+
+  @Override public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+    Map<TypeElement, List<VariableElement>> constants =
+        new LinkedHashMap<TypeElement, List<VariableElement>>();
+    for (Element element : round.getElementsAnnotatedWith(TypeLiteral.class)) {
+      if (!isStringConstant(element)) {
+        error(element, "@TypeLiteral must annotate a static final String constant");
+        continue;
+      }
+      TypeElement enclosingClass = (TypeElement) element.getEnclosingElement();
+      List<VariableElement> fields = constants.get(enclosingClass);
+      if (fields == null) {
+        fields = new ArrayList<VariableElement>();
+        constants.put(enclosingClass, fields);
+      }
+      fields.add((VariableElement) element);
+    }
+    for (Map.Entry<TypeElement, List<VariableElement>> entry : constants.entrySet()) {
+      generate(entry.getKey(), entry.getValue());
+    }
+    return true;
+  }
+
+  private void generate(TypeElement enclosingClass, List<VariableElement> fields) {
+    Elements elements = processingEnv.getElementUtils();
+    String packageName = elements.getPackageOf(enclosingClass).getQualifiedName().toString();
+    String binaryName = elements.getBinaryName(enclosingClass).toString();
+    String className = (packageName.isEmpty()
+        ? binaryName
+        : binaryName.substring(packageName.length() + 1)).replace('$', '_') + SUFFIX;
+    StringBuilder source = new StringBuilder()
+        .append("// Generated by ").append(getClass().getName()).append(". Do not edit.\n");
+    if (!packageName.isEmpty()) {
+      source.append("package ").append(packageName).append(";\n");
+    }
+    source.append("\n/** Precompiled type literals of {@code ")
+        .append(enclosingClass.getQualifiedName()).append("}. */\n")
+        .append("public final class ").append(className).append(" {\n");
+    boolean valid = true;
+    for (VariableElement field : fields) {
+      String literal = (String) field.getConstantValue();
+      String expression;
+      try {
+        expression = TypeLiteralCompiler.compile(elements, packageName, literal);
+      } catch (IllegalArgumentException e) {
+        error(field, "Invalid type literal \"" + literal + "\": " + e.getMessage());
+        valid = false;
+        continue;
+      }
+      source.append("\n  /** {@code ").append(literal).append("} */\n  ");
+      if (field.getModifiers().contains(Modifier.PUBLIC)) source.append("public ");
+      source.append("static final com.google.common.reflect.TypeToken<?> ")
+          .append(field.getSimpleName())
+          .append(" =\n      com.google.common.reflect.TypeToken.of(")
+          .append(expression).append(");\n");
+    }
+    if (!valid) return;
+    source.append("\n  private ").append(className).append("() {}\n}\n");
+    String qualifiedName = packageName.isEmpty() ? className : packageName + '.' + className;
+    try {
+      JavaFileObject file =
+          processingEnv.getFiler().createSourceFile(qualifiedName, enclosingClass);
+      try (Writer writer = file.openWriter()) {
+        writer.write(source.toString());
+      }
+    } catch (IOException e) {
+      error(enclosingClass, "Cannot write " + qualifiedName + ": " + e.getMessage());
+    }
+  }
+
+  private static boolean isStringConstant(Element element) {
+    return element.getKind() == ElementKind.FIELD
+        && element.getModifiers().contains(Modifier.STATIC)
+        && element.getModifiers().contains(Modifier.FINAL)
+        && ((VariableElement) element).getConstantValue() instanceof String;
+  }
+
+  private void error(Element element, String message) {
+    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+  }
+}
@@ -0,0 +1,163 @@
+package org.jparsec.java.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.jparsec.java.TypeParser;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class TypeLiteralProcessorTest {
+
+  private static final List<String> VALID = Arrays.asList(
+      "int",
+      "int[][]",
+      "char",
+      "[C",
+      "java.util.List<char[]>",
+      "String",
+      "[Ljava.lang.String;",
+      "java.util.Map<String, java.util.List<? extends Number>>",
+      "java.util.List<String>[]",
+      "java.util.Map$Entry<String, ?>",
+      "java.util.List<? super Integer[]>",
+      "com.acme.Outer",
+      "com.acme.Outer<String>.Inner<? super Integer>",
+      "com.acme.Outer<String>$Inner<Integer>",
+      "com.acme.Outer<String>.Inner<Integer>.Deeper",
+      "com.acme.Outer<String>$Plain$Generic<Integer>");
+
+  private static final String OUTER = "package com.acme;\n"
+      + "class Outer<T> {\n"
+      + "  class Inner<U> {\n"
+      + "    class Deeper {}\n"
+      + "  }\n"
+      + "  class Plain {\n"
+      + "    class Generic<V> {}\n"
+      + "  }\n"
+      + "}\n";
+
+  @Test
+  public void generatedTypesEqualParsedTypes() throws Exception {
+    Path output = Files.createTempDirectory("processor");
+    try {
+      StringBuilder constants = new StringBuilder();
+      for (int i = 0; i < VALID.size(); i++) {
+        constants.append("@TypeLiteral public static final String T").append(i)
+            .append(" = \"").append(VALID.get(i)).append("\";\n");
+      }
+      List<Diagnostic<? extends JavaFileObject>> errors =
+          compile(output, source("Handlers", constants), source("Outer", OUTER));
+      assertEquals(errors.toString(), 0, errors.size());
+      try (URLClassLoader loader = new URLClassLoader(
+          new URL[] {output.toUri().toURL()}, getClass().getClassLoader())) {
+        Class<?> literals = loader.loadClass("com.acme.Handlers_TypeLiterals");
+        TypeParser parser = new TypeParser(loader);
+        for (int i = 0; i < VALID.size(); i++) {
+          assertEquals(VALID.get(i),
+              parser.parse(VALID.get(i)), literals.getField("T" + i).get(null));
+        }
+      }
+    } finally {
+      delete(output);
+    }
+  }
+
+  @Test
+  public void invalidLiteralsFailCompilation() throws Exception {
+    Path output = Files.createTempDirectory("processor");
+    try {
+      List<Diagnostic<? extends JavaFileObject>> errors = compile(output, source("Handlers",
+          "@TypeLiteral static final String UNCLOSED = \"java.util.List<String\";\n"
+              + "@TypeLiteral static final String UNKNOWN = \"java.util.Lst<String>\";\n"
+              + "@TypeLiteral static final String ARITY = \"java.util.Map<String>\";\n"
+              + "@TypeLiteral static final String PRIMITIVE = \"java.util.List<int>\";\n"
+              + "@TypeLiteral static final String CANONICAL = \"java.util.Map.Entry\";\n"
+              + "@TypeLiteral static final String STATIC_MEMBER ="
+              + " \"java.util.Map<String, String>.Entry\";\n"
+              + "@TypeLiteral static String NOT_CONSTANT = \"String\";\n"));
+      assertEquals(errors.toString(), 7, errors.size());
+      assertMessage(errors.get(0), "static final String constant");
+      assertMessage(errors.get(1), "java.util.List<String", "Unexpected end");
+      assertMessage(errors.get(2), "Cannot find class java.util.Lst");
+      assertMessage(errors.get(3), "expects 2 type arguments, not 1");
+      assertMessage(errors.get(4), "Primitive type int");
+      assertMessage(errors.get(5), "java.util.Map$Entry");
+      assertMessage(errors.get(6), "Static java.util.Map.Entry");
+      assertFalse(Files.exists(output.resolve("com/acme/Handlers_TypeLiterals.class")));
+    } finally {
+      delete(output);
+    }
+  }
+
+  private static void assertMessage(
+      Diagnostic<? extends JavaFileObject> error, String... fragments) {
+    String message = error.getMessage(null);
+    for (String fragment : fragments) {
+      assertTrue(message, message.contains(fragment));
+    }
+  }
+
+  /** Compiles {@code sources} to {@code output}, and returns the errors. */
+  private static List<Diagnostic<? extends JavaFileObject>> compile(
+      Path output, JavaFileObject... sources) {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+    List<String> options = Arrays.asList(
+        "-d", output.toString(),
+        "-classpath", System.getProperty("java.class.path"),
+        "-processor", TypeLiteralProcessor.class.getName());
+    compiler.getTask(null, null, diagnostics, options, null, Arrays.asList(sources)).call();
+    List<Diagnostic<? extends JavaFileObject>> errors =
+        new ArrayList<Diagnostic<? extends JavaFileObject>>();
+    for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+      if (diagnostic.getKind() == Diagnostic.Kind.ERROR) errors.add(diagnostic);
+    }
+    return errors;
+  }
+
+  private static JavaFileObject source(String className, CharSequence body) {
+    String code = body.toString().startsWith("package ")
+        ? body.toString()
+        : "package com.acme;\n"
+            + "import org.jparsec.java.TypeLiteral;\n"
+            + "public class " + className + " {\n" + body + "}\n";
+    return new SimpleJavaFileObject(
+        URI.create("string:///com/acme/" + className + ".java"), JavaFileObject.Kind.SOURCE) {
+      @Override public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+        return code;
+      }
+    };
+  }
+
+  private static void delete(Path root) throws IOException {
+    try (Stream<Path> files = Files.walk(root)) {
+      for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+        Files.delete(file);
+      }
+    }
+  }
+}